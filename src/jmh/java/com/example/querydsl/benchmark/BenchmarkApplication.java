@@ -0,0 +1,35 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.QuerydslApplication;
+import com.example.querydsl.repository.MemberBulkRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트. bench 프로파일로 인메모리 H2 를 띄우고 회원 데이터를 넣는다.
+ */
+public final class BenchmarkApplication {
+
+    public static final List<String> TEAM_NAMES = Arrays.asList("teamA", "teamB", "teamC", "teamD");
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        String[] args = new String[properties.length + 1];
+        args[0] = "--spring.profiles.active=bench";
+        for (int i = 0; i < properties.length; i++) {
+            args[i + 1] = "--" + properties[i];
+        }
+        return new SpringApplicationBuilder(QuerydslApplication.class).run(args);
+    }
+
+    public static ConfigurableApplicationContext startWithMembers(int rows, String... properties) {
+        ConfigurableApplicationContext context = start(properties);
+        context.getBean(MemberBulkRepository.class).seed(TEAM_NAMES, rows);
+        return context;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberBulkRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기존 InitMember 방식(persist 루프)과 MemberBulkRepository 의 처리량 비교. ops/s 가 곧 rows/s 이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    static final int ROWS = 10_000;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    TransactionTemplate transactionTemplate;
+    MemberBulkRepository memberBulkRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberBulkRepository = context.getBean(MemberBulkRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void persistLoop() {
+        transactionTemplate.execute(status -> {
+            Team team = new Team("loop");
+            em.persist(team);
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member("member" + i, i % 100, team));
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long bulkSeed() {
+        return memberBulkRepository.seed(Collections.singletonList("bulk"), ROWS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.example.querydsl.repository.support.QueryProfile;
+import com.querydsl.core.util.CloseableIterator;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * 큰 결과를 커서로 끝까지 읽을 때 JDBC fetch size 별 비교 (QueryProfile.fetchSize)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FetchSizeBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    @Param({"10", "100", "1000", "10000"})
+    int fetchSize;
+
+    ConfigurableApplicationContext context;
+    JPAQueryFactory queryFactory;
+    TransactionTemplate transactionTemplate;
+    QueryProfile profile;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startWithMembers(rows);
+        queryFactory = new JPAQueryFactory(context.getBean(EntityManager.class));
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        profile = QueryProfile.builder("bench").fetchSize(fetchSize).readOnly(true).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long readAll(Blackhole blackhole) {
+        return transactionTemplate.execute(status -> {
+            long count = 0;
+            try (CloseableIterator<MemberTeamDto> iterator = profile.apply(queryFactory
+                    .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                    .from(member)
+                    .leftJoin(member.team, team))
+                    .iterate()) {
+                while (iterator.hasNext()) {
+                    blackhole.consume(iterator.next());
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+}
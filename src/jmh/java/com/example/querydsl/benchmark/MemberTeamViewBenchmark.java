@@ -0,0 +1,86 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.repository.support.MemberTeamView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * member - team 조인 검색(searchDynamic) vs 메모리 읽기 모델(MemberTeamView) 검색
+ * ./gradlew jmh -Pjmh.includes=MemberTeamViewBenchmark -Pjmh.params=rows=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MemberTeamViewBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberTeamView memberTeamView;
+    MemberSearchCondition teamCondition;
+    MemberSearchCondition usernameCondition;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startWithMembers(rows, "querydsl.member-team-view.enabled=true");
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberTeamView = context.getBean(MemberTeamView.class);
+        //시작할 때 읽은 뒤에 회원을 넣었으므로 다시 읽는다.
+        memberTeamView.rebuild();
+
+        teamCondition = new MemberSearchCondition();
+        teamCondition.setTeamName("teamB");
+        teamCondition.setAgeGoe(30);
+        teamCondition.setAgeLoe(40);
+
+        usernameCondition = new MemberSearchCondition();
+        usernameCondition.setUsername("member" + rows / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> joinedTeamName() {
+        return memberJpaRepository.searchDynamic(teamCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> viewTeamName() {
+        return memberTeamView.search(teamCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> joinedUsername() {
+        return memberJpaRepository.searchDynamic(usernameCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> viewUsername() {
+        return memberTeamView.search(usernameCondition);
+    }
+}
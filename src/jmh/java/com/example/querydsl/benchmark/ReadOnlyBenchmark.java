@@ -0,0 +1,85 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.ReadOnlyQuerySupport;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.example.querydsl.entity.QMember.member;
+
+/**
+ * 쓰기 트랜잭션 안에서 회원 목록을 읽고 flush 할 때 기본 조회, 읽기 전용 힌트, StatelessSession 비교.
+ * -Pjmh.includes=ReadOnlyBenchmark 로 실행하고 gc 프로파일러의 gc.alloc.rate.norm 으로 메모리를 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ReadOnlyBenchmark {
+
+    @Param({"1000", "10000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+    TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startWithMembers(rows);
+        em = context.getBean(EntityManager.class);
+        queryFactory = new JPAQueryFactory(em);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int managed() {
+        return loadAndFlush(() -> queryFactory.selectFrom(member).fetch());
+    }
+
+    @Benchmark
+    public int readOnlyHint() {
+        return loadAndFlush(() -> ReadOnlyQuerySupport.readOnly(queryFactory.selectFrom(member)).fetch());
+    }
+
+    @Benchmark
+    public int stateless() {
+        return loadAndFlush(() -> ReadOnlyQuerySupport.fetchStateless(em, queryFactory.selectFrom(member)));
+    }
+
+    private int loadAndFlush(Supplier<List<Member>> query) {
+        return transactionTemplate.execute(status -> {
+            List<Member> members = query.get();
+            em.flush();
+            status.setRollbackOnly();
+            return members.size();
+        });
+    }
+}
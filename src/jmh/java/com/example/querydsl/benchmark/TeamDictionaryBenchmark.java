@@ -0,0 +1,82 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberJpaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * team 조인 검색(searchDynamic) vs 팀 사전으로 조인을 없앤 검색(searchWithTeamDictionary)
+ * ./gradlew jmh -Pjmh.includes=TeamDictionaryBenchmark -Pjmh.params=rows=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TeamDictionaryBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberSearchCondition teamCondition;
+    MemberSearchCondition ageCondition;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startWithMembers(rows);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+        teamCondition = new MemberSearchCondition();
+        teamCondition.setTeamName("teamB");
+        teamCondition.setAgeGoe(30);
+        teamCondition.setAgeLoe(40);
+
+        ageCondition = new MemberSearchCondition();
+        ageCondition.setAgeGoe(30);
+        ageCondition.setAgeLoe(40);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> joinedTeamName() {
+        return memberJpaRepository.searchDynamic(teamCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> dictionaryTeamName() {
+        return memberJpaRepository.searchWithTeamDictionary(teamCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> joinedAge() {
+        return memberJpaRepository.searchDynamic(ageCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> dictionaryAge() {
+        return memberJpaRepository.searchWithTeamDictionary(ageCondition);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.querydsl.benchmark;
+
+import com.example.querydsl.dto.TeamStatistics;
+import com.example.querydsl.repository.TeamStatisticsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 팀별 통계: group by 한 번 vs 회원 id 구간별 동시 집계 vs 메모리 집계
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TeamStatisticsBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"4"})
+    int partitions;
+
+    ConfigurableApplicationContext context;
+    TeamStatisticsRepository teamStatisticsRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.startWithMembers(rows);
+        teamStatisticsRepository = context.getBean(TeamStatisticsRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TeamStatistics> singleQuery() {
+        return teamStatisticsRepository.statistics();
+    }
+
+    @Benchmark
+    public List<TeamStatistics> partitioned() {
+        return teamStatisticsRepository.statisticsPartitioned(partitions);
+    }
+
+    @Benchmark
+    public List<TeamStatistics> incremental() {
+        return teamStatisticsRepository.statisticsIncremental();
+    }
+}
@@ -1,15 +1,12 @@
 package com.example.querydsl;
 
-import com.example.querydsl.entity.Member;
-import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberBulkRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
+import java.util.Arrays;
 
 @Profile("local")
 @Component
@@ -22,21 +19,12 @@ public class InitMember {
     }
 
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService {
-        @PersistenceContext
-        EntityManager em;
+        private final MemberBulkRepository memberBulkRepository;
 
-        @Transactional
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
+            memberBulkRepository.seed(Arrays.asList("teamA", "teamB"), 100);
         }
     }
 }
@@ -0,0 +1,46 @@
+package com.example.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 2차 캐시/쿼리 캐시 region 별 hit, miss, put 카운트.
+ * hibernate.generate_statistics 가 꺼져 있으면 모두 0 이다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class CacheStatisticsController {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @GetMapping("/cache/statistics")
+    public Map<String, Map<String, Long>> cacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                result.put(regionName, counts(region.getHitCount(), region.getMissCount(), region.getPutCount()));
+            }
+        }
+        result.put("query-cache", counts(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        return result;
+    }
+
+    private Map<String, Long> counts(long hit, long miss, long put) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("hit", hit);
+        counts.put("miss", miss);
+        counts.put("put", put);
+        return counts;
+    }
+}
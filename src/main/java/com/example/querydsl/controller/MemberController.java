@@ -1,16 +1,26 @@
 package com.example.querydsl.controller;
 
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberAsyncRepository;
 import com.example.querydsl.repository.MemberJpaRepository;
 import com.example.querydsl.repository.MemberRepositoryCustom;
+import com.example.querydsl.repository.support.InvalidContinuationTokenException;
+import com.example.querydsl.repository.support.KeysetPage;
+import com.example.querydsl.repository.support.MemberTeamColumns;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,20 +28,58 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepositoryCustom memberRepository;
+    private final MemberAsyncRepository memberAsyncRepository;
+    private final MemberExporter memberExporter;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
+    //v1 과 같은 JSON 을 컬럼 배열에서 바로 쓴다. 결과가 큰 리포트용
+    @GetMapping("/v1/members/columns")
+    public MemberTeamColumns searchMemberV1Columns(MemberSearchCondition condition) {
+        return memberJpaRepository.searchColumns(condition);
+    }
+
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMemberV1(MemberSearchCondition condition,
+                                                                @RequestParam(defaultValue = "NDJSON") MemberExporter.Format format) {
+        StreamingResponseBody body = out -> memberExporter.export(condition, format, out);
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(body);
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+        return memberRepository.searchPageWindowed(condition, pageable);
     }
 
         @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean exactCount) {
+        return memberRepository.searchPageComplex(condition, pageable, exactCount);
+    }
+
+    //요청 스레드 밖에서 조회하고 서블릿 스레드는 바로 반환한다. 카운트는 페이지가 꽉 찼을 때만 조회한다.
+    @GetMapping("/v3/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable,
+                                                                      @RequestParam(defaultValue = "false") boolean exactCount) {
+        return memberAsyncRepository.searchPageComplex(condition, pageable, exactCount);
+    }
+
+    @GetMapping("/v4/members")
+    public KeysetPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                    @RequestParam(required = false) MemberKeysetSort sort,
+                                                    @RequestParam(required = false) String token,
+                                                    @RequestParam(defaultValue = "20") int size) {
+        return memberRepository.searchKeyset(condition, sort, token, size);
+    }
+
+    @ExceptionHandler(InvalidContinuationTokenException.class)
+    public ResponseEntity<String> invalidContinuationToken(InvalidContinuationTokenException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 
 }
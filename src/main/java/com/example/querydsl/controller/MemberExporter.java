@@ -0,0 +1,107 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 회원 검색 결과를 NDJSON/CSV 로 출력 스트림에 바로 쓴다.
+ * {@link MemberJpaRepository#searchStream} 커서를 읽는 동안 읽기 전용 트랜잭션을 유지한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberExporter {
+
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Getter
+    public enum Format {
+        NDJSON(new MediaType("application", "x-ndjson")),
+        CSV(new MediaType("text", "csv"));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+    }
+
+    public long export(MemberSearchCondition condition, Format format, OutputStream out) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Long written = transactionTemplate.execute(status -> {
+            try (Stream<MemberTeamDto> rows = memberJpaRepository.searchStream(condition)) {
+                return write(rows.iterator(), format, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written == null ? 0 : written;
+    }
+
+    private long write(Iterator<MemberTeamDto> rows, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+        long count = 0;
+        while (rows.hasNext()) {
+            MemberTeamDto row = rows.next();
+            if (format == Format.CSV) {
+                writeCsv(writer, row);
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+            if (++count % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsv(Writer writer, MemberTeamDto row) throws IOException {
+        writer.write(String.valueOf(row.getMemberId()));
+        writer.write(',');
+        writer.write(csv(row.getUsername()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getAge()));
+        writer.write(',');
+        writer.write(row.getTeamId() == null ? "" : String.valueOf(row.getTeamId()));
+        writer.write(',');
+        writer.write(csv(row.getTeamName()));
+        writer.write('\n');
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
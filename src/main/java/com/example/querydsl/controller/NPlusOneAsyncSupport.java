@@ -0,0 +1,43 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.repository.support.StatementCounter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.ServletRequest;
+import java.util.concurrent.Callable;
+
+/**
+ * Callable, StreamingResponseBody 처럼 MVC 작업 스레드에서 실행되는 처리도 요청의 {@link StatementCounter} 에 기록한다.
+ */
+@Configuration
+public class NPlusOneAsyncSupport implements WebMvcConfigurer {
+
+    private static final String ATTACHMENT_ATTRIBUTE = NPlusOneAsyncSupport.class.getName() + ".attachment";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            //preProcess, postProcess 는 작업 스레드에서 호출된다.
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                StatementCounter counter = NPlusOneDetectionFilter.counterOf(request.getNativeRequest(ServletRequest.class));
+                if (counter != null) {
+                    request.setAttribute(ATTACHMENT_ATTRIBUTE, counter.attach(), NativeWebRequest.SCOPE_REQUEST);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+                Object attachment = request.getAttribute(ATTACHMENT_ATTRIBUTE, NativeWebRequest.SCOPE_REQUEST);
+                if (attachment != null) {
+                    request.removeAttribute(ATTACHMENT_ATTRIBUTE, NativeWebRequest.SCOPE_REQUEST);
+                    ((StatementCounter.Attachment) attachment).close();
+                }
+            }
+        });
+    }
+}
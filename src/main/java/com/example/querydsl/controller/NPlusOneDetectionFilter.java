@@ -0,0 +1,132 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.repository.support.StatementCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 요청 단위로 실행된 SQL 을 세서 같은 조회가 반복되면(N+1 의심) 경고 로그를 남긴다.
+ * 카운터는 요청 속성에 담아 두고 비동기 쿼리 스레드, 비동기 디스패치, 스트리밍 응답 스레드에서도 같은 카운터에 기록한다.
+ * 비동기 요청은 응답이 끝날 때 검사한다.
+ * <p>
+ * querydsl.n-plus-one.fail 이 true 면 (테스트용) 응답 본문을 쓰기 직전에 검사해서 예외를 던진다.
+ * ({@link NPlusOneResponseBodyAdvice}) 응답이 커밋되기 전이므로 클라이언트는 500 을 받는다.
+ * 본문을 버퍼에 담지 않으므로 스트리밍 응답은 그대로 흘려보내고, 이미 커밋된 응답은 로그만 남긴다.
+ */
+@Slf4j
+@Component
+public class NPlusOneDetectionFilter extends OncePerRequestFilter {
+
+    static final String COUNTER_ATTRIBUTE = NPlusOneDetectionFilter.class.getName() + ".counter";
+
+    private final int threshold;
+    private final boolean fail;
+
+    public NPlusOneDetectionFilter(@Value("${querydsl.n-plus-one.threshold:5}") int threshold,
+                                   @Value("${querydsl.n-plus-one.fail:false}") boolean fail) {
+        this.threshold = threshold;
+        this.fail = fail;
+    }
+
+    /**
+     * 요청에 연결된 카운터. 필터를 거치지 않은 요청이면 null
+     */
+    public static StatementCounter counterOf(ServletRequest request) {
+        return (StatementCounter) request.getAttribute(COUNTER_ATTRIBUTE);
+    }
+
+    public boolean isFail() {
+        return fail;
+    }
+
+    /**
+     * fail 모드에서 N+1 이 의심되면 IllegalStateException 을 던진다.
+     */
+    public void assertNoNPlusOne(HttpServletRequest request) {
+        StatementCounter counter = counterOf(request);
+        if (fail && counter != null) {
+            counter.assertNoNPlusOne(threshold);
+        }
+    }
+
+    //비동기 디스패치에서 실행되는 SQL 도 같은 카운터에 기록한다.
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        StatementCounter dispatched = counterOf(request);
+        if (dispatched != null) {
+            try (StatementCounter.Attachment attachment = dispatched.attach()) {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        try (StatementCounter counter = StatementCounter.open()) {
+            request.setAttribute(COUNTER_ATTRIBUTE, counter);
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReportOnComplete(counter, request.getRequestURI()));
+            } else {
+                report(counter, request.getRequestURI());
+            }
+        }
+    }
+
+    private void report(StatementCounter counter, String uri) {
+        Map<String, Integer> repeated = counter.repeated(threshold);
+        if (repeated.isEmpty()) {
+            return;
+        }
+        if (fail) {
+            //본문을 쓰기 전에 걸러지지 않은 경우 (본문 없는 응답, 스트리밍 응답). 이미 커밋되었을 수 있다.
+            log.error("N+1 query suspected. uri={}, statements={}, repeated={}", uri, counter.getTotal(), repeated);
+        } else {
+            log.warn("N+1 query suspected. uri={}, statements={}, repeated={}", uri, counter.getTotal(), repeated);
+        }
+    }
+
+    private class ReportOnComplete implements AsyncListener {
+
+        private final StatementCounter counter;
+        private final String uri;
+
+        ReportOnComplete(StatementCounter counter, String uri) {
+            this.counter = counter;
+            this.uri = uri;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            report(counter, uri);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.querydsl.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * querydsl.n-plus-one.fail 일 때 응답 본문을 쓰기 직전(커밋 전)에 N+1 을 검사한다.
+ * 비동기 응답(CompletableFuture 등)은 결과를 쓰는 비동기 디스패치에서 검사된다.
+ */
+@ControllerAdvice
+public class NPlusOneResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    private final NPlusOneDetectionFilter filter;
+
+    public NPlusOneResponseBodyAdvice(NPlusOneDetectionFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return filter.isFail();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            filter.assertNoNPlusOne(((ServletServerHttpRequest) request).getServletRequest());
+        }
+        return body;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.querydsl.dto;
 
+import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 
 @Data
@@ -10,6 +11,7 @@ public class MemberDto {
     public MemberDto() {
     }
 
+    @QueryProjection
     public MemberDto(String username, int age) {
         this.username = username;
         this.age = age;
@@ -0,0 +1,9 @@
+package com.example.querydsl.dto;
+
+/**
+ * 키셋(seek) 페이징 정렬 기준. 동일 값은 memberId 로 이어서 정렬한다.
+ */
+public enum MemberKeysetSort {
+    MEMBER_ID,
+    AGE
+}
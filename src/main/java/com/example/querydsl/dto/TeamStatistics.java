@@ -0,0 +1,38 @@
+package com.example.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 팀별 회원 나이 통계. 평균은 합계/건수로 계산하므로 부분 집계를 합쳐도 정확하다.
+ */
+@Data
+public class TeamStatistics {
+    private String teamName;
+    private long count;
+    private long sum;
+    private int max;
+    private int min;
+
+    public TeamStatistics(String teamName, long count, long sum, int max, int min) {
+        this.teamName = teamName;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.min = min;
+    }
+
+    public double getAvg() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public TeamStatistics merge(TeamStatistics other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return new TeamStatistics(teamName, other.count, other.sum, other.max, other.min);
+        }
+        return new TeamStatistics(teamName, count + other.count, sum + other.sum,
+                Math.max(max, other.max), Math.min(min, other.min));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.StatementCounter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.StringUtils.isEmpty;
+
+/**
+ * 개발용 인덱스 점검기. MemberSearchCondition 조건 조합(16가지)별로 검색 SQL 을 EXPLAIN 해서
+ * 전체 테이블 스캔이 있는 조합과 필요한 인덱스 컬럼을 알려준다.
+ * 실행 계획은 H2 의 EXPLAIN 형식(/* PUBLIC.MEMBER.tableScan *&#47;)으로 해석한다.
+ * querydsl.index-advisor.enabled 이면 애플리케이션 시작 후 결과를 로그로 남긴다.
+ */
+@Slf4j
+@Component
+public class IndexAdvisor {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\*\\s*(?:\\w+\\.)?(\\w+)\\.tableScan\\s*\\*/",
+            Pattern.CASE_INSENSITIVE);
+
+    private final EntityManager em;
+    private final MemberJpaRepository memberJpaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public IndexAdvisor(EntityManager em, MemberJpaRepository memberJpaRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${querydsl.index-advisor.enabled:false}") boolean enabled) {
+        this.em = em;
+        this.memberJpaRepository = memberJpaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    /**
+     * sample 의 값으로 조건 조합마다 searchDynamic 의 SQL 을 EXPLAIN 한다. sample 에 없는 조건이 들어간 조합은 건너뛴다.
+     */
+    public List<Plan> analyze(MemberSearchCondition sample) {
+        List<Plan> plans = new ArrayList<>();
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) == 0 ? null : sample.getUsername());
+            condition.setTeamName((shape & 2) == 0 ? null : sample.getTeamName());
+            condition.setAgeGoe((shape & 4) == 0 ? null : sample.getAgeGoe());
+            condition.setAgeLoe((shape & 8) == 0 ? null : sample.getAgeLoe());
+            if (Integer.bitCount(shape) != predicates(condition).size()) {
+                continue;
+            }
+            plans.add(transactionTemplate.execute(status -> explain(condition)));
+        }
+        return plans;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        if (!enabled) {
+            return;
+        }
+        List<Member> members = em.createQuery("select m from Member m join fetch m.team", Member.class)
+                .setMaxResults(1)
+                .getResultList();
+        if (members.isEmpty()) {
+            log.info("index advisor skipped: no member with a team to sample");
+            return;
+        }
+        Member member = members.get(0);
+        MemberSearchCondition sample = new MemberSearchCondition();
+        sample.setUsername(member.getUsername());
+        sample.setTeamName(member.getTeam().getName());
+        sample.setAgeGoe(member.getAge());
+        sample.setAgeLoe(member.getAge());
+        for (Plan plan : analyze(sample)) {
+            if (plan.getScannedTables().isEmpty()) {
+                log.info("index advisor {}: ok", plan.getShape());
+            } else {
+                log.warn("index advisor {}: full scan of {}, missing index on {}\n{}",
+                        plan.getShape(), plan.getScannedTables(), plan.getSuggestedColumns(), plan.getPlan());
+            }
+        }
+    }
+
+    private Plan explain(MemberSearchCondition condition) {
+        String sql;
+        try (StatementCounter counter = StatementCounter.open()) {
+            memberJpaRepository.searchDynamic(condition);
+            sql = counter.getCounts().keySet().stream()
+                    .filter(statement -> statement.toLowerCase(Locale.ROOT).contains("from member"))
+                    .reduce((first, second) -> second)
+                    .orElseThrow(() -> new IllegalStateException("search statement was not captured"));
+        }
+        Query explain = em.createNativeQuery("explain " + sql);
+        List<Object> parameters = predicates(condition);
+        for (int i = 0; i < parameters.size(); i++) {
+            explain.setParameter(i + 1, parameters.get(i));
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> rows = explain.getResultList();
+        String plan = rows.stream().map(String::valueOf).collect(Collectors.joining("\n"));
+        return new Plan(MemberJpaRepository.searchShape("member.search", condition), sql, plan, condition);
+    }
+
+    //searchDynamic 의 where 순서와 같다.
+    private static List<Object> predicates(MemberSearchCondition condition) {
+        List<Object> values = new ArrayList<>();
+        if (!isEmpty(condition.getUsername())) {
+            values.add(condition.getUsername());
+        }
+        if (!isEmpty(condition.getTeamName())) {
+            values.add(condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            values.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            values.add(condition.getAgeLoe());
+        }
+        return values;
+    }
+
+    @Getter
+    public static class Plan {
+
+        private final String shape;
+        private final String sql;
+        private final String plan;
+        //전체 스캔한 테이블 (소문자)
+        private final Set<String> scannedTables = new LinkedHashSet<>();
+        //스캔한 테이블에서 이 조합의 조건에 쓰인 컬럼 (table.column)
+        private final Set<String> suggestedColumns = new LinkedHashSet<>();
+
+        Plan(String shape, String sql, String plan, MemberSearchCondition condition) {
+            this.shape = shape;
+            this.sql = sql;
+            this.plan = plan;
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                scannedTables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+            }
+            if (scannedTables.contains("member")) {
+                if (!isEmpty(condition.getUsername())) {
+                    suggestedColumns.add("member.username");
+                }
+                if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                    suggestedColumns.add("member.age");
+                }
+                if (!isEmpty(condition.getTeamName())) {
+                    suggestedColumns.add("member.team_id");
+                }
+            }
+            if (scannedTables.contains("team") && !isEmpty(condition.getTeamName())) {
+                suggestedColumns.add("team.name");
+            }
+        }
+
+        public boolean isFullScan(String table) {
+            return scannedTables.contains(table.toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.repository.support.AsyncQueryExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link MemberRepositoryCustom} 의 비동기 버전.
+ * 쿼리를 요청 스레드 밖의 읽기 전용 트랜잭션에서 실행하므로 서블릿 스레드를 붙잡지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberAsyncRepository {
+
+    private final MemberRepository memberRepository;
+    private final AsyncQueryExecutor executor;
+
+    public CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return executor.supply(() -> memberRepository.search(condition));
+    }
+
+    /**
+     * 카운트 쿼리는 컨텐츠를 받은 뒤 페이지가 꽉 찼을 때만 실행한다. (PageableExecutionUtils 와 같은 기준)
+     * 첫 페이지가 덜 찼거나 마지막 페이지면 컨텐츠만으로 전체 건수를 알 수 있으므로 쿼리 하나, 허가 하나로 끝난다.
+     */
+    public CompletableFuture<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition,
+                                                                    Pageable pageable, boolean exactCount) {
+        return executor.supply(() -> memberRepository.searchContent(condition, pageable))
+                .thenCompose(rows -> {
+                    if (!needsCount(rows, pageable)) {
+                        //카운트가 필요 없는 페이지이므로 supplier 는 호출되지 않는다.
+                        return CompletableFuture.completedFuture(PageableExecutionUtils.getPage(rows, pageable, () -> 0L));
+                    }
+                    return executor.supply(() -> memberRepository.searchCount(condition, exactCount))
+                            .thenApply(total -> PageableExecutionUtils.getPage(rows, pageable, () -> total));
+                });
+    }
+
+    private static boolean needsCount(List<?> rows, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return false;
+        }
+        return rows.isEmpty() ? pageable.getOffset() > 0 : rows.size() >= pageable.getPageSize();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Member/Team 대량 저장용 리포지토리.
+ * hibernate.jdbc.batch_size 단위로 flush/clear 해서 insert 를 JDBC 배치로 묶고,
+ * 트랜잭션 밖에서 호출하면 commitInterval 마다 커밋해서 트랜잭션 하나가 커지지 않게 한다.
+ * 이미 트랜잭션이 있으면 그 트랜잭션에 참여하고 중간 커밋은 하지 않는다.
+ * 이때도 flush/clear 는 하므로 호출 전에 조회한 엔티티는 준영속 상태가 된다.
+ */
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int commitInterval;
+
+    public MemberBulkRepository(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+                                @Value("${querydsl.bulk-insert.commit-interval:10000}") int commitInterval) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    public List<Team> saveTeams(List<String> teamNames) {
+        return transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>();
+            for (String teamName : teamNames) {
+                Team team = new Team(teamName);
+                em.persist(team);
+                teams.add(team);
+            }
+            return teams;
+        });
+    }
+
+    /**
+     * 연관된 Team 은 이미 저장되어 있어야 한다.
+     *
+     * @return 저장한 회원 수
+     */
+    public long saveAll(Iterator<Member> members) {
+        long saved = 0;
+        while (members.hasNext()) {
+            saved += transactionTemplate.execute(status -> persistChunk(members));
+        }
+        return saved;
+    }
+
+    /**
+     * teamNames 의 팀을 만들고 member0 ~ member(memberCount-1) 을 팀에 번갈아 배정해서 저장한다.
+     * 수천만 건을 넣어도 Team.members 컬렉션이 커지지 않도록 연관관계는 프록시로 한쪽만 설정한다.
+     */
+    public long seed(List<String> teamNames, long memberCount) {
+        List<Team> teams = saveTeams(teamNames);
+        Long[] teamIds = teams.stream().map(Team::getId).toArray(Long[]::new);
+        Iterator<Member> members = new Iterator<Member>() {
+            long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < memberCount;
+            }
+
+            @Override
+            public Member next() {
+                long i = next++;
+                Member member = new Member("member" + i, (int) (i % 100));
+                member.setTeam(em.getReference(Team.class, teamIds[(int) (i % teamIds.length)]));
+                return member;
+            }
+        };
+        return saveAll(members);
+    }
+
+    private long persistChunk(Iterator<Member> members) {
+        long persisted = 0;
+        while (members.hasNext() && persisted < commitInterval) {
+            em.persist(members.next());
+            if (++persisted % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return persisted;
+    }
+}
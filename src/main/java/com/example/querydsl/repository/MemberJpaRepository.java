@@ -4,14 +4,42 @@ import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.DtoProjection;
+import com.example.querydsl.repository.support.InListLookup;
+import com.example.querydsl.repository.support.MemberSearchCache;
+import com.example.querydsl.repository.support.MemberTeamColumns;
+import com.example.querydsl.repository.support.MemberTeamView;
+import com.example.querydsl.repository.support.PrecompiledJpql;
+import com.example.querydsl.repository.support.QueryMetrics;
+import com.example.querydsl.repository.support.QueryProfile;
+import com.example.querydsl.repository.support.ReadOnlyQuerySupport;
+import com.example.querydsl.repository.support.TeamDictionary;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.util.CloseableIterator;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.example.querydsl.entity.QMember.*;
 import static com.example.querydsl.entity.QTeam.team;
@@ -21,12 +49,37 @@ import static org.springframework.util.StringUtils.isEmpty;
 @Repository
 public class MemberJpaRepository {
 
+    public static final String MEMBER_BY_USERNAME_REGION = "query.member-by-username";
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+    private static final int HAS_USERNAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final QueryMetrics queryMetrics;
+    private final MemberSearchCache searchCache;
+    private final TeamDictionary teamDictionary;
+    private final InListLookup inListLookup;
+    private final MemberTeamView memberTeamView;
+    //검색 조건 조합(최대 16가지)별로 직렬화된 JPQL
+    private final Map<Integer, PrecompiledJpql<MemberTeamDto>> searchTemplates = new ConcurrentHashMap<>();
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, QueryMetrics queryMetrics, MemberSearchCache searchCache,
+                               TeamDictionary teamDictionary, InListLookup inListLookup,
+                               MemberTeamView memberTeamView) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.queryMetrics = queryMetrics;
+        this.searchCache = searchCache;
+        this.teamDictionary = teamDictionary;
+        this.inListLookup = inListLookup;
+        this.memberTeamView = memberTeamView;
     }
 
     public void save(Member member) {
@@ -39,24 +92,35 @@ public class MemberJpaRepository {
     }
 
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m", Member.class)
-                .getResultList();
+        return queryMetrics.fetch("member.findAll", () -> em.createQuery("select m from Member m", Member.class)
+                .getResultList());
     }
 
     public List<Member> findByUsername(String username) {
-        return em.createQuery("select m from Member m where m.username = :username ", Member.class)
+        return queryMetrics.fetch("member.findByUsername", () -> em.createQuery("select m from Member m where m.username = :username ", Member.class)
                 .setParameter("username", username)
-                .getResultList();
+                .getResultList());
     }
 
     public List<Member> findAll_Querydsl() {
-        return queryFactory
-                .selectFrom(member).fetch();
+        return queryMetrics.fetch("member.findAll_Querydsl", () -> queryFactory
+                .selectFrom(member).fetch());
     }
 
+    //l2cache 프로파일에서 query cache 를 사용한다. Member 변경 시 Hibernate 가 해당 region 을 무효화한다.
     public List<Member> findByUsername_Querydsl(String username) {
-        return queryFactory
-                .selectFrom(member).where(member.username.eq(username)).fetch();
+        return queryMetrics.fetch("member.findByUsername_Querydsl", () -> queryFactory
+                .selectFrom(member).where(member.username.eq(username))
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, MEMBER_BY_USERNAME_REGION)
+                .fetch());
+    }
+
+    //회원명 여러 개를 in 조건 청크로 나눠 한 번에 조회한다. 결과가 없는 회원명은 빈 목록이다.
+    public Map<String, List<Member>> findByUsernames(Collection<String> usernames) {
+        return inListLookup.fetch(usernames, chunk -> queryMetrics.fetch("member.findByUsernames", () -> queryFactory
+                .selectFrom(member).where(member.username.in(chunk))
+                .fetch()), Member::getUsername);
     }
 
     //builder dynamic
@@ -75,7 +139,7 @@ public class MemberJpaRepository {
         if (condition.getAgeLoe() != null) {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
-        return queryFactory
+        return queryMetrics.fetch(searchShape("member.searchByBuilder", condition), () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -85,12 +149,104 @@ public class MemberJpaRepository {
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(builder)
-                .fetch();
+                .fetch());
     }
 
     //회원명, 팀명, 나이(ageGoe, ageLoe)
+    //조건 조합별로 미리 직렬화한 JPQL 을 재사용하고 파라미터만 바인딩한다.
+    //트랜잭션 밖에서 호출되면 읽기 전용 트랜잭션으로 실행되어 레플리카가 있으면 레플리카에서 읽는다.
+    //같은 조건의 결과는 MemberSearchCache 에 담아 두고 회원/팀 변경이 커밋되면 해당 항목만 무효화한다.
+    //querydsl.team-dictionary.enabled 이면 team 조인 없이 팀 사전으로 조회한다.
+    //querydsl.member-team-view.enabled 이면 조인 대신 MemberTeamView 에서 찾는다. (뷰 자체가 메모리에 있으므로 캐시를 거치지 않는다)
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        if (memberTeamView.isReadable()) {
+            return queryMetrics.fetch(searchShape("member.searchView", condition), () -> memberTeamView.search(condition));
+        }
+        return searchCache.get(condition, Pageable.unpaged(), () -> teamDictionary.isEnabled()
+                ? searchWithTeamDictionary(condition)
+                : searchUncached(condition));
+    }
+
+    private List<MemberTeamDto> searchUncached(MemberSearchCondition condition) {
+        int shape = 0;
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if (!isEmpty(condition.getUsername())) {
+            shape |= HAS_USERNAME;
+            params.put(USERNAME, condition.getUsername());
+        }
+        if (!isEmpty(condition.getTeamName())) {
+            shape |= HAS_TEAM_NAME;
+            params.put(TEAM_NAME, condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= HAS_AGE_GOE;
+            params.put(AGE_GOE, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= HAS_AGE_LOE;
+            params.put(AGE_LOE, condition.getAgeLoe());
+        }
+        PrecompiledJpql<MemberTeamDto> template = searchTemplates.computeIfAbsent(shape, this::searchTemplate);
+        return queryMetrics.fetch(searchShape("member.search", condition), () -> template.fetch(em, params, QueryProfile.INTERACTIVE));
+    }
+
+    private PrecompiledJpql<MemberTeamDto> searchTemplate(int shape) {
+        return new PrecompiledJpql<>(em, queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where((shape & HAS_USERNAME) == 0 ? null : member.username.eq(USERNAME),
+                        (shape & HAS_TEAM_NAME) == 0 ? null : team.name.eq(TEAM_NAME),
+                        (shape & HAS_AGE_GOE) == 0 ? null : member.age.goe(AGE_GOE),
+                        (shape & HAS_AGE_LOE) == 0 ? null : member.age.loe(AGE_LOE)));
+    }
+
+    /**
+     * team 을 조인하지 않고 TeamDictionary 로 팀 이름 조건을 team_id in (...) 으로 바꾸고 팀 이름을 채운다.
+     * 사전에 없는 팀을 가진 회원이 나오면 사전을 비우고 조인 쿼리로 다시 조회한다.
+     */
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchWithTeamDictionary(MemberSearchCondition condition) {
+        TeamDictionary.Snapshot teams = teamDictionary.current();
+        BooleanExpression teamIdIn = null;
+        if (!isEmpty(condition.getTeamName())) {
+            List<Long> teamIds = teams.idsOf(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            teamIdIn = member.team.id.in(teamIds);
+        }
+        List<Tuple> rows = queryMetrics.fetch(searchShape("member.searchWithTeamDictionary", condition), () -> queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .where(usernameEq(condition.getUsername()),
+                        teamIdIn,
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .fetch());
+
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(member.team.id);
+            if (teamId != null && !teams.contains(teamId)) {
+                teamDictionary.invalidate();
+                return searchDynamic(condition);
+            }
+            result.add(new MemberTeamDto(row.get(member.id), row.get(member.username), row.get(member.age),
+                    teamId, teams.nameOf(teamId)));
+        }
+        return result;
+    }
+
+    //매번 Querydsl 표현식을 만들고 직렬화하는 기존 방식 (search 와 결과/성능 비교용)
+    public List<MemberTeamDto> searchDynamic(MemberSearchCondition condition) {
+        return queryMetrics.fetch(searchShape("member.searchDynamic", condition), () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -103,7 +259,103 @@ public class MemberJpaRepository {
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .fetch();
+                .fetch());
+    }
+
+    /**
+     * 검색 결과를 List 로 모으지 않고 ScrollableResults 로 한 행씩 읽는 Stream 을 반환한다.
+     * 커서가 열려 있는 동안 트랜잭션이 유지되어야 하며, 사용 후 반드시 close 해야 한다.
+     * DTO 로 읽으므로 영속성 컨텍스트에 엔티티가 쌓이지 않아 중간에 비울 필요가 없다.
+     */
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition) {
+        //iterate() 에서 쿼리가 실행되므로 그 전에 시작한다.
+        QueryMetrics.Recording recording = queryMetrics.start(searchShape("member.searchStream", condition));
+        CloseableIterator<MemberTeamDto> iterator;
+        try {
+            iterator = QueryProfile.EXPORT.apply(queryFactory
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())))
+                    .iterate();
+        } catch (RuntimeException e) {
+            recording.close();
+            throw e;
+        }
+
+        AtomicLong rows = new AtomicLong();
+        //커서를 읽다 실패하면 실패로, 끝까지 읽으면 성공으로 기록한다.
+        Iterator<MemberTeamDto> recorded = new Iterator<MemberTeamDto>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    boolean hasNext = iterator.hasNext();
+                    if (!hasNext) {
+                        recording.stop(rows.get());
+                    }
+                    return hasNext;
+                } catch (RuntimeException e) {
+                    recording.close();
+                    throw e;
+                }
+            }
+
+            @Override
+            public MemberTeamDto next() {
+                try {
+                    MemberTeamDto dto = iterator.next();
+                    rows.incrementAndGet();
+                    return dto;
+                } catch (RuntimeException e) {
+                    recording.close();
+                    throw e;
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(recorded, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    iterator.close();
+                    //호출한 쪽이 중간에 그만 읽은 것은 실패가 아니므로 읽은 만큼 기록한다. (이미 기록했으면 무시된다)
+                    recording.stop(rows.get());
+                });
+    }
+
+    /**
+     * search 와 같은 결과를 컬럼별 배열에 담는다. 큰 결과를 메모리에 들고 있어야 하는 리포트/내보내기용.
+     * Tuple 을 한 행씩 읽어 바로 배열에 옮기므로 중간 DTO 목록을 만들지 않는다.
+     */
+    @Transactional(readOnly = true)
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition) {
+        try (QueryMetrics.Recording recording = queryMetrics.start(searchShape("member.searchColumns", condition))) {
+            //드라이버가 한 번에 가져오는 행 수만큼 잡아 두고 넘치면 늘린다.
+            MemberTeamColumns.Builder columns = MemberTeamColumns.builder(QueryProfile.EXPORT.getFetchSize());
+            try (CloseableIterator<Tuple> rows = QueryProfile.EXPORT.apply(queryFactory
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())))
+                    .iterate()) {
+                while (rows.hasNext()) {
+                    Tuple row = rows.next();
+                    columns.add(row.get(member.id), row.get(member.username), row.get(member.age),
+                            row.get(team.id), row.get(team.name));
+                }
+            }
+            MemberTeamColumns result = columns.build();
+            recording.stop(result.size());
+            return result;
+        }
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -120,13 +372,45 @@ public class MemberJpaRepository {
 
     //where 파라미터 방식은 이런식으로 재사용이 가능하다.
     public List<Member> findMember(MemberSearchCondition condition) {
-        return queryFactory.selectFrom(member)
+        return queryMetrics.fetch(searchShape("member.findMember", condition), () -> queryFactory
+                .selectFrom(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .fetch();
+                .fetch());
+    }
+
+    //findMember 와 같지만 엔티티 스냅샷을 만들지 않는다. 조회한 회원을 수정해도 반영되지 않는다.
+    public List<Member> findMemberReadOnly(MemberSearchCondition condition) {
+        return queryMetrics.fetch(searchShape("member.findMemberReadOnly", condition), () -> ReadOnlyQuerySupport
+                .readOnly(queryFactory.selectFrom(member))
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .fetch());
+    }
+
+    //findMember 와 같은 조건으로 DTO 필드에 필요한 컬럼만 조회한다. (엔티티 스냅샷을 만들지 않는다)
+    public <D> List<D> findMember(MemberSearchCondition condition, Class<D> projection) {
+        return queryMetrics.fetch(searchShape("member.findMember." + projection.getSimpleName(), condition), () ->
+                DtoProjection.of(em, projection, member).select(queryFactory, member.team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+                        .fetch());
+    }
+
+    static String searchShape(String name, MemberSearchCondition condition) {
+        return QueryMetrics.shape(name,
+                isEmpty(condition.getUsername()) ? null : "username",
+                isEmpty(condition.getTeamName()) ? null : "teamName",
+                condition.getAgeGoe() == null ? null : "ageGoe",
+                condition.getAgeLoe() == null ? null : "ageLoe");
     }
 
 
@@ -1,14 +1,28 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.KeysetPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, boolean exactCount);
+    //searchPageComplex 의 컨텐츠/카운트 쿼리를 따로 실행할 때 사용한다.
+    List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable);
+    long searchCount(MemberSearchCondition condition, boolean exactCount);
+    Page<MemberTeamDto> searchPageWindowed(MemberSearchCondition condition, Pageable pageable);
+    KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort,
+                                           String continuationToken, int size);
+    //findByUsername 을 회원명 여러 개에 대해 in 조건 청크로 한 번에 조회한다.
+    Map<String, List<Member>> findByUsernames(Collection<String> usernames);
 }
@@ -1,20 +1,42 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.dto.QMemberTeamDto;
 import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.CountCache;
+import com.example.querydsl.repository.support.InListLookup;
+import com.example.querydsl.repository.support.InvalidContinuationTokenException;
+import com.example.querydsl.repository.support.KeysetCursor;
+import com.example.querydsl.repository.support.KeysetPage;
+import com.example.querydsl.repository.support.MemberSearchCache;
+import com.example.querydsl.repository.support.MemberTeamView;
+import com.example.querydsl.repository.support.QueryMetrics;
+import com.example.querydsl.repository.support.QueryProfile;
+import com.example.querydsl.repository.support.WindowFunctionH2Dialect;
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberTemplate;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.example.querydsl.entity.QMember.member;
 import static com.example.querydsl.entity.QTeam.team;
@@ -22,16 +44,35 @@ import static org.springframework.util.StringUtils.isEmpty;
 
 public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
 
+    private static final NumberTemplate<Long> TOTAL_COUNT =
+            Expressions.numberTemplate(Long.class, WindowFunctionH2Dialect.COUNT_OVER + "()");
+
     private final JPAQueryFactory queryFactory;
+    private final CountCache countCache;
+    private final QueryMetrics queryMetrics;
+    private final MemberSearchCache searchCache;
+    private final InListLookup inListLookup;
+    private final MemberTeamView memberTeamView;
+    private final boolean countOverSupported;
 
-    public MemberRepositoryCustomImpl(EntityManager em) {
+    public MemberRepositoryCustomImpl(EntityManager em, CountCache countCache, QueryMetrics queryMetrics,
+                                      MemberSearchCache searchCache, InListLookup inListLookup,
+                                      MemberTeamView memberTeamView) {
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.queryMetrics = queryMetrics;
+        this.searchCache = searchCache;
+        this.inListLookup = inListLookup;
+        this.memberTeamView = memberTeamView;
+        this.countOverSupported = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getFunctions()
+                .containsKey(WindowFunctionH2Dialect.COUNT_OVER);
     }
 
     @Override
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        return queryMetrics.fetch(MemberJpaRepository.searchShape("memberCustom.search", condition), () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -41,41 +82,118 @@ public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
                 .from(member)
                 .leftJoin(member.team, team).where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()), ageGoe(condition.getAgeGoe()), ageLoe(condition.getAgeLoe()))
-                .fetch();
+                .fetch());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> result = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
+        QueryResults<MemberTeamDto> result;
+        try (QueryMetrics.Recording recording = queryMetrics.start(
+                MemberJpaRepository.searchShape("memberCustom.searchPageSimple", condition))) {
+            result = QueryProfile.INTERACTIVE.apply(queryFactory
+                    .select(new QMemberTeamDto(
+                            member.id.as("memberId"),
+                            member.username,
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize()))
+                    .fetchResults();
+            recording.stop(result.getResults().size());
+        }
         List<MemberTeamDto> content = result.getResults();
         long total = result.getTotal();
         return new PageImpl<>(content, pageable, total);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
+        return searchPageComplex(condition, pageable, false);
+    }
+
+    /**
+     * 카운트는 {@link CountCache} 에서 가져온다. exactCount 면 캐시를 거치지 않고 카운트 쿼리를 실행한다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable,
+                                                 boolean exactCount) {
+        List<MemberTeamDto> content = searchContent(condition, pageable);
+
+//        return new PageImpl<>(content, pageable, total);
+        return PageableExecutionUtils.getPage(content, pageable, () -> searchCount(condition, exactCount));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchContent(MemberSearchCondition condition, Pageable pageable) {
+        if (memberTeamView.isReadable()) {
+            return queryMetrics.fetch(MemberJpaRepository.searchShape("memberCustom.searchView", condition),
+                    () -> memberTeamView.search(condition, pageable.getOffset(), pageable.getPageSize()));
+        }
+        return searchCache.get(condition, pageable, () -> queryMetrics.fetch(
+                MemberJpaRepository.searchShape("memberCustom.searchPageComplex", condition),
+                () -> QueryProfile.INTERACTIVE.apply(queryFactory
+                        .select(new QMemberTeamDto(
+                                member.id.as("memberId"),
+                                member.username,
+                                member.age,
+                                team.id.as("teamId"),
+                                team.name.as("teamName")))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe()))
+                        //offset 페이지가 실행마다 같도록 정렬한다. (MemberTeamView 검색과 같은 회원 id 순서)
+                        .orderBy(member.id.asc())
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize()))
+                        .fetch()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long searchCount(MemberSearchCondition condition, boolean exactCount) {
+        //뷰는 커밋 직후 잠깐 이전 값일 수 있으므로 exactCount 면 카운트 쿼리를 실행한다.
+        if (!exactCount && memberTeamView.isReadable()) {
+            return memberTeamView.count(condition);
+        }
+        String shape = MemberJpaRepository.searchShape("memberCustom.searchPageComplex", condition);
+        JPAQuery<Member> countQuery = QueryProfile.COUNT.apply(countQuery(condition));
+        return countCache.count(CountCache.keyOf(countQuery),
+                () -> queryMetrics.count(shape + ".count", countQuery::fetchCount), exactCount);
+    }
+
+    /**
+     * count(*) over() 윈도우 컬럼으로 컨텐츠와 전체 카운트를 한 번에 조회한다.
+     * 방언이 윈도우 함수를 지원하지 않으면 searchPageSimple 의 두 쿼리 방식으로 동작한다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageWindowed(MemberSearchCondition condition, Pageable pageable) {
+        if (!countOverSupported) {
+            return searchPageSimple(condition, pageable);
+        }
+        QMemberTeamDto memberTeamDto = new QMemberTeamDto(
+                member.id.as("memberId"),
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName"));
+        String shape = MemberJpaRepository.searchShape("memberCustom.searchPageWindowed", condition);
+        List<Tuple> rows = queryMetrics.fetch(shape, () -> QueryProfile.INTERACTIVE.apply(queryFactory
+                .select(memberTeamDto, TOTAL_COUNT)
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
@@ -83,9 +201,30 @@ public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
                 .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
-        JPAQuery<Member> countQuery = queryFactory
+                .limit(pageable.getPageSize()))
+                .fetch());
+
+        //마지막 페이지를 넘어가면 윈도우 컬럼을 받을 행이 없으므로 카운트 쿼리로 보완
+        if (rows.isEmpty()) {
+            return PageableExecutionUtils.getPage(Collections.<MemberTeamDto>emptyList(), pageable,
+                    () -> queryMetrics.count(shape + ".count", QueryProfile.COUNT.apply(countQuery(condition))::fetchCount));
+        }
+        List<MemberTeamDto> content = rows.stream()
+                .map(row -> row.get(memberTeamDto))
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, rows.get(0).get(TOTAL_COUNT));
+    }
+
+    @Override
+    public Map<String, List<Member>> findByUsernames(Collection<String> usernames) {
+        return inListLookup.fetch(usernames, chunk -> queryMetrics.fetch("memberCustom.findByUsernames", () -> queryFactory
+                .selectFrom(member)
+                .where(member.username.in(chunk))
+                .fetch()), Member::getUsername);
+    }
+
+    private JPAQuery<Member> countQuery(MemberSearchCondition condition) {
+        return queryFactory
                 .select(member)
                 .from(member)
                 .leftJoin(member.team, team)
@@ -93,9 +232,84 @@ public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()));
+    }
 
-//        return new PageImpl<>(content, pageable, total);
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+    /**
+     * offset 대신 마지막 행의 (정렬 값, memberId) 이후부터 조회하는 키셋 페이징.
+     * 한 건을 더 조회해서 다음 페이지 존재 여부를 판단하고, 전체 카운트는 구하지 않는다.
+     * sort 가 null 이면 토큰의 정렬 기준(토큰도 없으면 MEMBER_ID)을 쓴다. 토큰과 다른 정렬을 지정하거나
+     * 토큰이 잘못되었으면 {@link InvalidContinuationTokenException} 을 던진다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort,
+                                                  String continuationToken, int size) {
+        Assert.isTrue(size > 0, "Page size must be positive!");
+        KeysetCursor cursor = continuationToken == null ? null : KeysetCursor.decode(continuationToken);
+        MemberKeysetSort keysetSort = keysetSort(sort, cursor);
+
+        String shape = MemberJpaRepository.searchShape("memberCustom.searchKeyset", condition);
+        List<MemberTeamDto> rows = queryMetrics.fetch(shape, () -> QueryProfile.INTERACTIVE.apply(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        keysetAfter(keysetSort, cursor))
+                .orderBy(keysetOrder(keysetSort))
+                .limit(size + 1))
+                .fetch());
+
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<MemberTeamDto> content = rows.subList(0, size);
+        MemberTeamDto last = content.get(size - 1);
+        long sortValue = keysetSort == MemberKeysetSort.AGE ? last.getAge() : last.getMemberId();
+        return new KeysetPage<>(content, new KeysetCursor(keysetSort.name(), sortValue, last.getMemberId()).encode());
+    }
+
+    private static MemberKeysetSort keysetSort(MemberKeysetSort sort, KeysetCursor cursor) {
+        if (cursor == null) {
+            return sort == null ? MemberKeysetSort.MEMBER_ID : sort;
+        }
+        MemberKeysetSort cursorSort;
+        try {
+            cursorSort = MemberKeysetSort.valueOf(cursor.getSortKey());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException("Unknown sort in continuation token: " + cursor.getSortKey(), e);
+        }
+        if (sort != null && sort != cursorSort) {
+            throw new InvalidContinuationTokenException("Continuation token was issued for sort " + cursorSort
+                    + ", not " + sort);
+        }
+        return cursorSort;
+    }
+
+    private BooleanExpression keysetAfter(MemberKeysetSort sort, KeysetCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        if (sort == MemberKeysetSort.AGE) {
+            int lastAge = (int) cursor.getSortValue();
+            return member.age.gt(lastAge)
+                    .or(member.age.eq(lastAge).and(member.id.gt(cursor.getLastId())));
+        }
+        return member.id.gt(cursor.getLastId());
+    }
+
+    private OrderSpecifier<?>[] keysetOrder(MemberKeysetSort sort) {
+        if (sort == MemberKeysetSort.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
     }
 
     private BooleanExpression usernameEq(String username) {
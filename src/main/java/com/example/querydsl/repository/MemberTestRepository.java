@@ -19,7 +19,7 @@ import static org.springframework.util.StringUtils.isEmpty;
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
-    public MemberTestRepository(Class<?> domainClass) {
+    public MemberTestRepository() {
         super(Member.class);
     }
 
@@ -31,6 +31,19 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         return selectFrom(member)
                 .fetch();
     }
+    public List<Member> basicSelectFromWithTeam() {
+        return selectFrom(member, member.team)
+                .fetch();
+    }
+    //조회 결과를 수정하지 않으면 스냅샷을 만들지 않는다. (리포지토리 전체에 적용하려면 @ReadOnlyQueries)
+    public List<Member> basicSelectFromReadOnly() {
+        return readOnly(selectFrom(member))
+                .fetch();
+    }
+    //조회 결과를 수정하지 않는 대량 조회는 영속성 컨텍스트 없이 실행한다.
+    public List<Member> basicSelectFromStateless() {
+        return fetchStateless(selectFrom(member));
+    }
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition,
                                               Pageable pageable) {
         JPAQuery<Member> query = selectFrom(member)
@@ -42,7 +55,20 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                         ageLoe(condition.getAgeLoe()));
 
         List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery(query)::fetchCount);
+    }
+    //엔티티가 필요 없으면 DTO 로 필요한 컬럼만 조회한다. 예) searchPageByApplyPage(condition, pageable, MemberTeamDto.class)
+    public <D> Page<D> searchPageByApplyPage(MemberSearchCondition condition,
+                                             Pageable pageable, Class<D> projection) {
+        JPAQuery<D> query = selectDto(projection, member, member.team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+
+        List<D> content = getQuerydsl().applyPagination(pageable, query).fetch();
+        return PageableExecutionUtils.getPage(content, pageable, countQuery(query)::fetchCount);
     }
     public Page<Member> applyPagination(MemberSearchCondition condition,
                                         Pageable pageable) {
@@ -0,0 +1,46 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.AsyncQueryExecutor;
+import com.example.querydsl.repository.support.BatchLoader;
+import com.example.querydsl.repository.support.InListLookup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 요청 하나에서 회원명 단건 조회를 모아 {@link MemberJpaRepository#findByUsernames} 한 번으로 조회한다.
+ * 같은 요청에서 querydsl.username-loader.window 안에 들어온 load 호출이 한 쿼리로 묶인다.
+ * 조회한 회원은 요청의 영속성 컨텍스트 밖에서 로딩된 준영속 엔티티다.
+ * 한 번에 묶는 회원명 수는 in 조건 청크 크기를 넘지 않게 해서 배치 하나가 쿼리 하나가 되게 한다.
+ */
+@Component
+@Scope(value = WebApplicationContext.SCOPE_REQUEST, proxyMode = ScopedProxyMode.TARGET_CLASS)
+public class MemberUsernameLoader {
+
+    private final BatchLoader<String, List<Member>> loader;
+
+    public MemberUsernameLoader(MemberJpaRepository memberJpaRepository, AsyncQueryExecutor executor,
+                                InListLookup inListLookup,
+                                @Value("${querydsl.username-loader.window:5ms}") Duration window,
+                                @Value("${querydsl.username-loader.max-batch-size:500}") int maxBatchSize) {
+        this.loader = new BatchLoader<>(memberJpaRepository::findByUsernames, executor, window,
+                Math.min(maxBatchSize, inListLookup.getChunkSize()));
+    }
+
+    public CompletableFuture<List<Member>> load(String username) {
+        return loader.load(username);
+    }
+
+    @PreDestroy
+    public void close() {
+        loader.close();
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.TeamStatistics;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.AsyncQueryExecutor;
+import com.example.querydsl.repository.support.BulkWriteEvent;
+import com.example.querydsl.repository.support.EntityWriteEvent;
+import com.example.querydsl.repository.support.SharedCacheSupport;
+import com.example.querydsl.repository.support.TeamDictionary;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름별 회원 나이 통계 (count/sum/avg/max/min, QuerydslBasicTest.aggregation/group 과 같은 집계).
+ * <ul>
+ *     <li>statistics: group by 쿼리 한 번</li>
+ *     <li>statisticsPartitioned: 회원 id 구간별 부분 집계를 각자의 커넥션에서 동시에 실행하고 합친다</li>
+ *     <li>statisticsIncremental: 팀별 집계를 메모리에 두고 회원 insert/update/delete 커밋마다 갱신한다</li>
+ * </ul>
+ * 팀이 없는 회원은 group 과 같이(inner join) 제외한다.
+ */
+@Repository
+public class TeamStatisticsRepository {
+
+    //트랜잭션 하나에서 모아 두는 변화량 상한. 넘으면 커밋 후 다시 읽는다.
+    private static final int MAX_PENDING_DELTAS = 10_000;
+
+    private final JPAQueryFactory queryFactory;
+    private final AsyncQueryExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamDictionary teamDictionary;
+    private final AtomicLong generation = new AtomicLong();
+    //팀 id 별 집계. null 이면 다음 statisticsIncremental 에서 다시 만든다.
+    private Map<Long, Aggregate> aggregates;
+    //회원을 썼지만 집계 반영(또는 롤백)이 끝나지 않은 트랜잭션 수 (this 로 보호)
+    private int pending;
+
+    public TeamStatisticsRepository(EntityManager em, AsyncQueryExecutor executor,
+                                    PlatformTransactionManager transactionManager, TeamDictionary teamDictionary) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.teamDictionary = teamDictionary;
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeamStatistics> statistics() {
+        return sorted(aggregate(null).values());
+    }
+
+    /**
+     * 회원 id 범위를 partitions 개로 나눠 동시에 집계한다. 각 구간은 별도 읽기 전용 트랜잭션이므로 커밋된 데이터만 보인다.
+     */
+    public List<TeamStatistics> statisticsPartitioned(int partitions) {
+        Assert.isTrue(partitions > 0, "Partitions must be positive!");
+        Tuple range = transactionTemplate.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+        Long minId = range == null ? null : range.get(0, Long.class);
+        Long maxId = range == null ? null : range.get(1, Long.class);
+        if (minId == null || maxId == null) {
+            return new ArrayList<>();
+        }
+        long step = Math.max(1, (maxId - minId + partitions) / partitions);
+        List<CompletableFuture<Map<String, TeamStatistics>>> parts = new ArrayList<>();
+        for (long start = minId; start <= maxId; start += step) {
+            long from = start;
+            long to = Math.min(maxId, start + step - 1);
+            parts.add(executor.supply(() -> transactionTemplate.execute(status ->
+                    aggregate(member.id.between(from, to)))));
+        }
+
+        Map<String, TeamStatistics> merged = new HashMap<>();
+        for (CompletableFuture<Map<String, TeamStatistics>> part : parts) {
+            part.join().forEach((name, statistics) -> merged.merge(name, statistics, TeamStatistics::merge));
+        }
+        return sorted(merged.values());
+    }
+
+    /**
+     * 메모리에 유지하는 팀별 집계로 통계를 만든다. 처음 호출하거나 팀/벌크 변경 후에는 DB 에서 다시 읽는다.
+     * 쓰기 가능한 트랜잭션 안에서는 커밋되지 않은 변경이 있을 수 있으므로 매번 현재 트랜잭션에서 읽는다.
+     */
+    public List<TeamStatistics> statisticsIncremental() {
+        Map<Long, Aggregate> current = snapshot();
+        TeamDictionary.Snapshot teams = teamDictionary.current();
+        Map<String, TeamStatistics> byName = new HashMap<>();
+        for (Map.Entry<Long, Aggregate> entry : current.entrySet()) {
+            if (entry.getValue().count == 0) {
+                continue;
+            }
+            String name = teams.nameOf(entry.getKey());
+            if (name == null && !teams.contains(entry.getKey())) {
+                teamDictionary.invalidate();
+                teams = teamDictionary.current();
+                name = teams.nameOf(entry.getKey());
+            }
+            TeamStatistics statistics = entry.getValue().toStatistics(name);
+            byName.merge(name, statistics, TeamStatistics::merge);
+        }
+        return sorted(byName.values());
+    }
+
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        aggregates = null;
+    }
+
+    /**
+     * 회원 쓰기/팀 삭제가 있는 트랜잭션마다 PendingWrite 하나에 팀별 변화량만 모았다가 커밋 후 한 번에 반영한다.
+     * PendingWrite 를 등록할 때 pending 을 올리고 완료 후에 내린다. 커밋된 변경은 반영될 때까지 집계에 없으므로
+     * 그 사이에 읽은 집계에는 이미 들어 있어 담으면 한 번 더 더해진다. pending 이 남아 있으면 읽은 집계를 담지 않는다.
+     */
+    @EventListener
+    public void onEntityWrite(EntityWriteEvent event) {
+        boolean teamDeleted = event.isFor(Team.class) && event.getType() == EntityWriteEvent.Type.DELETE;
+        if (!teamDeleted && !event.isFor(Member.class)) {
+            return;
+        }
+        PendingWrite write = TransactionSynchronizationManager.isSynchronizationActive() ? pendingWrite() : null;
+        boolean immediate = write == null;
+        if (immediate) {
+            write = new PendingWrite();
+        }
+        if (teamDeleted || event.getType() != EntityWriteEvent.Type.INSERT && !event.hasPreviousState()) {
+            //변경 전 값을 모르면 뺄 수 없으므로 다시 읽는다.
+            write.rebuild();
+        } else {
+            write.add(event.previousStateOf("team"), event.previousStateOf("age"), -1);
+            write.add(event.stateOf("team"), event.stateOf("age"), 1);
+        }
+        if (immediate) {
+            write.apply();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            invalidate();
+        }
+    }
+
+    private Map<Long, Aggregate> snapshot() {
+        if (!SharedCacheSupport.isCacheableRead()) {
+            return load();
+        }
+        long startGeneration;
+        synchronized (this) {
+            if (aggregates != null) {
+                return copy(aggregates);
+            }
+            startGeneration = generation.get();
+        }
+        Map<Long, Aggregate> loaded = transactionTemplate.execute(status -> load());
+        synchronized (this) {
+            //읽는 도중 반영된 변경이 있거나 아직 반영되지 않은 회원 쓰기 트랜잭션이 있으면 담지 않는다.
+            if (generation.get() == startGeneration && pending == 0) {
+                aggregates = loaded;
+                return copy(loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private Map<Long, Aggregate> load() {
+        List<Tuple> rows = queryFactory
+                .select(member.team.id, member.age, member.count())
+                .from(member)
+                .where(member.team.isNotNull())
+                .groupBy(member.team.id, member.age)
+                .fetch();
+        Map<Long, Aggregate> loaded = new HashMap<>();
+        for (Tuple row : rows) {
+            loaded.computeIfAbsent(row.get(0, Long.class), id -> new Aggregate())
+                    .add(row.get(1, Integer.class), row.get(2, Long.class));
+        }
+        return loaded;
+    }
+
+    private PendingWrite pendingWrite() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingWrite && ((PendingWrite) synchronization).owner() == this) {
+                return (PendingWrite) synchronization;
+            }
+        }
+        PendingWrite write = new PendingWrite();
+        synchronized (this) {
+            pending++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(write);
+        return write;
+    }
+
+    private Map<String, TeamStatistics> aggregate(Predicate where) {
+        List<Tuple> rows = queryFactory
+                .select(team.name,
+                        member.count(),
+                        member.age.sum(),
+                        member.age.max(),
+                        member.age.min())
+                .from(member)
+                .join(member.team, team)
+                .where(where)
+                .groupBy(team.name)
+                .fetch();
+        Map<String, TeamStatistics> result = new HashMap<>();
+        for (Tuple row : rows) {
+            result.put(row.get(0, String.class), new TeamStatistics(row.get(0, String.class),
+                    row.get(1, Number.class).longValue(),
+                    row.get(2, Number.class).longValue(),
+                    row.get(3, Number.class).intValue(),
+                    row.get(4, Number.class).intValue()));
+        }
+        return result;
+    }
+
+    private static Map<Long, Aggregate> copy(Map<Long, Aggregate> source) {
+        Map<Long, Aggregate> copy = new HashMap<>();
+        source.forEach((id, aggregate) -> copy.put(id, aggregate.copy()));
+        return copy;
+    }
+
+    private static List<TeamStatistics> sorted(Collection<TeamStatistics> statistics) {
+        List<TeamStatistics> result = new ArrayList<>(statistics);
+        result.sort(Comparator.comparing(TeamStatistics::getTeamName, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * 트랜잭션 하나의 팀별 회원 나이 변화량. 이벤트 대신 (팀 id, 나이, +1/-1) 만 담고,
+     * MAX_PENDING_DELTAS 개를 넘으면 버리고 커밋 후 다시 읽는다.
+     */
+    private class PendingWrite extends TransactionSynchronizationAdapter {
+
+        //null 이면 다시 읽는다.
+        private List<Delta> deltas = new ArrayList<>();
+
+        TeamStatisticsRepository owner() {
+            return TeamStatisticsRepository.this;
+        }
+
+        void add(Object team, Object age, int sign) {
+            if (deltas == null || !(team instanceof Team)) {
+                return;
+            }
+            deltas.add(new Delta(((Team) team).getId(), (Integer) age, sign));
+            if (deltas.size() > MAX_PENDING_DELTAS) {
+                deltas = null;
+            }
+        }
+
+        void rebuild() {
+            deltas = null;
+        }
+
+        void apply() {
+            synchronized (TeamStatisticsRepository.this) {
+                generation.incrementAndGet();
+                if (aggregates == null) {
+                    return;
+                }
+                if (deltas == null) {
+                    aggregates = null;
+                    return;
+                }
+                for (Delta delta : deltas) {
+                    aggregates.computeIfAbsent(delta.teamId, id -> new Aggregate()).add(delta.age, delta.sign);
+                }
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            apply();
+        }
+
+        //afterCommit 의 apply 가 끝난 뒤에 호출된다. 롤백이면 반영할 것이 없다.
+        @Override
+        public void afterCompletion(int status) {
+            synchronized (TeamStatisticsRepository.this) {
+                pending--;
+            }
+        }
+    }
+
+    private static class Delta {
+
+        private final Long teamId;
+        private final int age;
+        private final int sign;
+
+        Delta(Long teamId, int age, int sign) {
+            this.teamId = teamId;
+            this.age = age;
+            this.sign = sign;
+        }
+    }
+
+    /**
+     * 한 팀의 집계. 삭제/변경 후에도 max/min 을 구할 수 있도록 나이별 건수를 둔다.
+     */
+    private static class Aggregate {
+
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+
+        void add(int age, long rows) {
+            count += rows;
+            sum += age * rows;
+            ages.merge(age, rows, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        Aggregate copy() {
+            Aggregate copy = new Aggregate();
+            copy.count = count;
+            copy.sum = sum;
+            copy.ages.putAll(ages);
+            return copy;
+        }
+
+        TeamStatistics toStatistics(String teamName) {
+            return new TeamStatistics(teamName, count, sum, ages.lastKey(), ages.firstKey());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.querydsl.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 트랜잭션 하나에서 모은 값을 커밋된 뒤에 한 번에 넘긴다. 트랜잭션 밖에서 추가하면 바로 넘긴다.
+ * 엔티티 쓰기 이벤트마다 {@code @TransactionalEventListener} 로 받으면 이벤트마다 동기화가 등록돼 커밋까지 남으므로
+ * (벌크 저장 청크 하나에 수천 건) 캐시 무효화는 트랜잭션마다 동기화 하나에 필요한 값만 모은다.
+ * 모은 값이 limit 개를 넘으면 값을 버리고 커밋된 뒤 overflow 를 실행한다. (보통 전체 무효화)
+ * 롤백되면 아무것도 실행하지 않는다.
+ */
+public class AfterCommitBuffer<T> {
+
+    private final int limit;
+    private final Consumer<Collection<T>> onCommit;
+    private final Runnable overflow;
+
+    public AfterCommitBuffer(int limit, Consumer<Collection<T>> onCommit, Runnable overflow) {
+        Assert.isTrue(limit > 0, "Limit must be positive!");
+        this.limit = limit;
+        this.onCommit = onCommit;
+        this.overflow = overflow;
+    }
+
+    public void add(T value) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.accept(Collections.singleton(value));
+            return;
+        }
+        bufferOf().add(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Buffer<T> bufferOf() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Buffer && ((Buffer<?>) synchronization).owner == this) {
+                return (Buffer<T>) synchronization;
+            }
+        }
+        Buffer<T> buffer = new Buffer<>(this);
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    private static class Buffer<T> extends TransactionSynchronizationAdapter {
+
+        private final AfterCommitBuffer<T> owner;
+        //limit 을 넘으면 null
+        private Set<T> values = new LinkedHashSet<>();
+
+        Buffer(AfterCommitBuffer<T> owner) {
+            this.owner = owner;
+        }
+
+        void add(T value) {
+            if (values != null && values.add(value) && values.size() > owner.limit) {
+                values = null;
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (values == null) {
+                owner.overflow.run();
+            } else {
+                owner.onCommit.accept(values);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 쿼리를 요청 스레드 밖에서 실행하는 실행기.
+ * 가상 스레드를 지원하는 런타임(JDK 21+)이면 작업마다 가상 스레드를 쓰고, 아니면 고정 크기 스레드 풀을 쓴다.
+ * 어느 쪽이든 동시에 실행되는 쿼리 수는 max-concurrency 로 제한해서 커넥션 풀을 넘지 않게 한다.
+ * 작업은 호출한 쪽의 트랜잭션에 참여하지 않으므로 커밋된 데이터만 보인다.
+ */
+@Slf4j
+@Component
+public class AsyncQueryExecutor {
+
+    //이 실행기에서 쿼리를 실행 중인 스레드 표시. (가상 스레드일 수 있으므로 스레드 이름으로 구분하지 않는다)
+    private static final ThreadLocal<Boolean> QUERY_THREAD = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    public AsyncQueryExecutor(@Value("${querydsl.async.max-concurrency:10}") int maxConcurrency) {
+        this.permits = new Semaphore(maxConcurrency);
+        ExecutorService virtual = virtualThreadExecutor();
+        if (virtual != null) {
+            log.info("async queries run on virtual threads (max {})", maxConcurrency);
+            this.executor = virtual;
+        } else {
+            AtomicInteger sequence = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "async-query-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        //요청 단위 N+1 검사에 작업 스레드에서 실행한 SQL 도 포함되도록 호출한 스레드의 카운터에 기록한다.
+        StatementCounter counter = StatementCounter.current();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            QUERY_THREAD.set(Boolean.TRUE);
+            StatementCounter.Attachment attachment = counter == null ? null : counter.attach();
+            try {
+                return query.get();
+            } finally {
+                if (attachment != null) {
+                    attachment.close();
+                }
+                QUERY_THREAD.remove();
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * 현재 스레드가 이 실행기에서 쿼리를 실행 중인지. 실행 중인 작업이 다시 작업을 넣고 기다리면
+     * 허가(permit)를 쥔 채로 기다리게 되어 교착될 수 있으므로 그럴 때는 현재 스레드에서 바로 실행한다.
+     */
+    public static boolean isQueryThread() {
+        return QUERY_THREAD.get() != null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    //소스 호환성(1.8)을 유지하기 위해 리플렉션으로 찾는다.
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * DataLoader 방식의 키 묶음 조회기. window 동안 들어온 단건 요청을 모아 batch 함수 한 번으로 조회한다.
+ * 같은 window 안의 같은 키는 같은 Future 를 돌려받는다. 모인 키가 maxBatchSize 가 되면 window 를 기다리지 않는다.
+ * batch 함수는 {@link AsyncQueryExecutor} 에서 실행되므로 호출한 쪽의 트랜잭션에 참여하지 않는다.
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    //window 가 지났을 때 flush 만 하는 타이머. 조회는 AsyncQueryExecutor 에서 실행한다.
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-loader-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<Collection<K>, Map<K, V>> batch;
+    private final AsyncQueryExecutor executor;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batch, AsyncQueryExecutor executor,
+                       Duration window, int maxBatchSize) {
+        this.batch = batch;
+        this.executor = executor;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * batch 결과에 없는 키는 null 로 완료된다.
+     */
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future;
+        boolean full;
+        synchronized (this) {
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() == 1) {
+                TIMER.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            full = pending.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * 모인 키를 바로 조회한다.
+     */
+    public void flush() {
+        Map<K, CompletableFuture<V>> keys;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            keys = pending;
+            pending = new LinkedHashMap<>();
+        }
+        executor.supply(() -> batch.apply(keys.keySet())).whenComplete((values, error) -> {
+            for (Map.Entry<K, CompletableFuture<V>> entry : keys.entrySet()) {
+                if (error != null) {
+                    entry.getValue().completeExceptionally(error);
+                } else {
+                    entry.getValue().complete(values.get(entry.getKey()));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
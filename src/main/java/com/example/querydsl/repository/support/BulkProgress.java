@@ -0,0 +1,29 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link ChunkedBulkExecutor} 의 진행 상황. 마지막 값이 실행 결과가 된다.
+ * totalChunks 는 시작할 때 센 건수로 계산한 추정치이고, 마지막 값에서는 실제로 실행한 청크 수와 같다.
+ */
+@Getter
+@ToString
+public class BulkProgress {
+
+    private final long completedChunks;
+    private final long totalChunks;
+    private final long affectedRows;
+    private final Long lastId;
+
+    public BulkProgress(long completedChunks, long totalChunks, long affectedRows, Long lastId) {
+        this.completedChunks = completedChunks;
+        this.totalChunks = totalChunks;
+        this.affectedRows = affectedRows;
+        this.lastId = lastId;
+    }
+
+    public boolean isDone() {
+        return completedChunks == totalChunks;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 영속성 컨텍스트를 거치지 않는 벌크 update/delete 가 실행됐을 때 발행되는 이벤트.
+ * 어떤 행이 바뀌었는지는 알 수 없으므로 받는 쪽은 엔티티 타입 단위로 무효화해야 한다.
+ */
+@Getter
+@ToString
+public class BulkWriteEvent {
+
+    private final Class<?> entityType;
+    private final long affectedRows;
+
+    public BulkWriteEvent(Class<?> entityType, long affectedRows) {
+        this.entityType = entityType;
+        this.affectedRows = affectedRows;
+    }
+
+    public boolean isFor(Class<?> entityType) {
+        return this.entityType.equals(entityType);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 트랜잭션 하나에서 커밋된 변경 묶음. events 는 flush 된 순서다.
+ * sequence 는 커밋 순서대로 증가한다. 구독자가 받지 않는 타입만 있는 배치는 전달되지 않으므로 중간 번호가 빠질 수 있다.
+ */
+@Getter
+@ToString
+public class ChangeBatch {
+
+    private final long sequence;
+    private final List<ChangeEvent> events;
+
+    public ChangeBatch(long sequence, List<ChangeEvent> events) {
+        this.sequence = sequence;
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public boolean contains(Class<?> entityType) {
+        return events.stream().anyMatch(event -> event.isFor(entityType));
+    }
+
+    ChangeBatch filter(Predicate<ChangeEvent> accepts) {
+        List<ChangeEvent> accepted = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            if (accepts.test(event)) {
+                accepted.add(event);
+            }
+        }
+        return accepted.size() == events.size() ? this : new ChangeBatch(sequence, accepted);
+    }
+}
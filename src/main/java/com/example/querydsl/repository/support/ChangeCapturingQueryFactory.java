@@ -0,0 +1,53 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.EntityManager;
+
+/**
+ * update/delete 절의 execute() 가 끝나면 {@link BulkWriteEvent} 를 발행하는 JPAQueryFactory.
+ * 벌크 연산은 Hibernate 이벤트 리스너를 거치지 않으므로 캐시와 {@link ChangeStream} 이 알 수 있도록 이걸로 만든다.
+ * <pre>
+ * new ChangeCapturingQueryFactory(em, eventPublisher).update(member).set(member.age, member.age.add(1)).execute();
+ * </pre>
+ */
+public class ChangeCapturingQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ChangeCapturingQueryFactory(EntityManager em, ApplicationEventPublisher eventPublisher) {
+        super(em);
+        this.em = em;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(em, path) {
+            @Override
+            public long execute() {
+                return published(path, super.execute());
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(em, path) {
+            @Override
+            public long execute() {
+                return published(path, super.execute());
+            }
+        };
+    }
+
+    private long published(EntityPath<?> path, long affectedRows) {
+        eventPublisher.publishEvent(new BulkWriteEvent(path.getType(), affectedRows));
+        return affectedRows;
+    }
+}
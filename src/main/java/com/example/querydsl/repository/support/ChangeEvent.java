@@ -0,0 +1,51 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * {@link ChangeStream} 이 구독자에게 전달하는 변경 한 건.
+ * 엔티티 쓰기는 {@link EntityWriteEvent} 의 값을 그대로 담고, 벌크 연산(BULK)은 id/state 없이 바뀐 행 수만 담는다.
+ */
+@Getter
+@ToString
+public class ChangeEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE, BULK
+    }
+
+    private final Class<?> entityType;
+    private final Type type;
+    private final Object id;
+    @ToString.Exclude
+    private final Map<String, Object> state;
+    @ToString.Exclude
+    private final Map<String, Object> previousState;
+    private final long affectedRows;
+
+    private ChangeEvent(Class<?> entityType, Type type, Object id,
+                        Map<String, Object> state, Map<String, Object> previousState, long affectedRows) {
+        this.entityType = entityType;
+        this.type = type;
+        this.id = id;
+        this.state = state;
+        this.previousState = previousState;
+        this.affectedRows = affectedRows;
+    }
+
+    public static ChangeEvent of(EntityWriteEvent event) {
+        return new ChangeEvent(event.getEntityType(), Type.valueOf(event.getType().name()), event.getId(),
+                event.getState(), event.getPreviousState(), 1);
+    }
+
+    public static ChangeEvent of(BulkWriteEvent event) {
+        return new ChangeEvent(event.getEntityType(), Type.BULK, null, null, null, event.getAffectedRows());
+    }
+
+    public boolean isFor(Class<?> entityType) {
+        return this.entityType.equals(entityType);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 프로세스 안의 변경 스트림. 엔티티 쓰기({@link EntityWriteEventPublisher})와
+ * 벌크 연산({@link ChangeCapturingQueryFactory}, {@link ChunkedBulkExecutor})을 트랜잭션 단위로 모았다가
+ * 커밋된 뒤 {@link ChangeBatch} 하나로 구독자에게 전달한다. 롤백된 트랜잭션의 변경은 버린다.
+ * 트랜잭션 밖의 쓰기는 한 건짜리 배치로 바로 전달한다.
+ * <p>
+ * 구독자마다 크기가 queue-capacity 인 큐와 전용 스레드가 있다. 큐가 차 있으면 커밋한 스레드가 최대 max-block 동안 기다리고
+ * (배압), 그래도 자리가 나지 않으면 그 구독자의 큐를 비우고 {@link ChangeSubscriber#onOverflow} 를 전달한다.
+ * 모든 구독자는 같은 순서(sequence)로 배치를 받는다.
+ */
+@Slf4j
+@Component
+public class ChangeStream implements SmartInitializingSingleton {
+
+    public static final String QUEUED = "querydsl.change-stream.queued";
+    public static final String OVERFLOWS = "querydsl.change-stream.overflows";
+
+    private final ObjectProvider<ChangeSubscriber> subscribers;
+    private final MeterRegistry registry;
+    private final int capacity;
+    private final Duration maxBlock;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    public ChangeStream(ObjectProvider<ChangeSubscriber> subscribers, MeterRegistry registry,
+                        @Value("${querydsl.change-stream.queue-capacity:1000}") int capacity,
+                        @Value("${querydsl.change-stream.max-block:1s}") Duration maxBlock) {
+        this.subscribers = subscribers;
+        this.registry = registry;
+        this.capacity = capacity;
+        this.maxBlock = maxBlock;
+    }
+
+    //구독자 빈이 ChangeStream 을 주입받아도 순환 참조가 되지 않도록 싱글톤이 모두 만들어진 뒤에 구독한다.
+    //꺼진 구독자까지 구독하면 구독자가 없어도 모든 쓰기를 모으게 되므로 켜진 것만 구독한다.
+    @Override
+    public void afterSingletonsInstantiated() {
+        subscribers.orderedStream()
+                .filter(ChangeSubscriber::isEnabled)
+                .forEach(this::subscribe);
+    }
+
+    public Subscription subscribe(ChangeSubscriber subscriber) {
+        return subscribe(subscriber, capacity, maxBlock);
+    }
+
+    public Subscription subscribe(ChangeSubscriber subscriber, int capacity, Duration maxBlock) {
+        Assert.isTrue(capacity > 0, "Queue capacity must be positive!");
+        Subscription subscription = new Subscription(subscriber, capacity, maxBlock);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @EventListener
+    public void onEntityWrite(EntityWriteEvent event) {
+        //구독자가 없으면 state 맵을 만들지 않는다.
+        if (!subscriptions.isEmpty()) {
+            record(ChangeEvent.of(event));
+        }
+    }
+
+    @EventListener
+    public void onBulkWrite(BulkWriteEvent event) {
+        record(ChangeEvent.of(event));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private void record(ChangeEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(Collections.singletonList(event));
+            return;
+        }
+        //리소스로 묶으면 REQUIRES_NEW 로 중단된 바깥 트랜잭션과 섞이므로 트랜잭션마다 등록되는 동기화 객체에 담는다.
+        TransactionBuffer buffer = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionBuffer && ((TransactionBuffer) synchronization).owner() == this) {
+                buffer = (TransactionBuffer) synchronization;
+            }
+        }
+        if (buffer == null) {
+            buffer = new TransactionBuffer();
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        buffer.events.add(event);
+    }
+
+    //구독자 큐에 넣는 순서가 sequence 순서와 같아야 하므로 한 번에 하나씩 발행한다.
+    private synchronized void publish(List<ChangeEvent> events) {
+        ChangeBatch batch = new ChangeBatch(++sequence, events);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(batch);
+        }
+    }
+
+    private class TransactionBuffer extends TransactionSynchronizationAdapter {
+
+        private final List<ChangeEvent> events = new ArrayList<>();
+
+        ChangeStream owner() {
+            return ChangeStream.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            publish(events);
+        }
+    }
+
+    /**
+     * 구독 하나. close 하면 구독을 끊고 전용 스레드를 멈춘다. 큐에 남은 배치는 버린다.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final ChangeSubscriber subscriber;
+        private final BlockingQueue<Runnable> queue;
+        private final long maxBlockNanos;
+        private final Gauge queued;
+        private final Counter overflows;
+        private final Thread worker;
+
+        private Subscription(ChangeSubscriber subscriber, int capacity, Duration maxBlock) {
+            this.subscriber = subscriber;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.maxBlockNanos = maxBlock.toNanos();
+            String name = subscriber.getClass().getSimpleName();
+            this.queued = Gauge.builder(QUEUED, queue, Collection::size).tag("subscriber", name).register(registry);
+            this.overflows = Counter.builder(OVERFLOWS).tag("subscriber", name).register(registry);
+            this.worker = new Thread(this::run, "change-stream-" + name);
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+
+        public int getQueued() {
+            return queue.size();
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            registry.remove(queued);
+            worker.interrupt();
+        }
+
+        private void offer(ChangeBatch batch) {
+            ChangeBatch accepted = batch.filter(event -> subscriber.accepts(event.getEntityType()));
+            if (accepted.getEvents().isEmpty()) {
+                return;
+            }
+            try {
+                if (queue.offer(() -> subscriber.onChanges(accepted), maxBlockNanos, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            //publish 가 동기화되어 있으므로 비운 뒤 넣는 사이에 다른 배치가 끼어들지 않는다.
+            queue.clear();
+            queue.offer(() -> subscriber.onOverflow(batch.getSequence()));
+            overflows.increment();
+            log.warn("change stream subscriber {} fell behind, dropped batches up to {}",
+                    subscriber.getClass().getSimpleName(), batch.getSequence());
+        }
+
+        private void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable delivery;
+                try {
+                    delivery = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    delivery.run();
+                } catch (RuntimeException e) {
+                    log.error("change stream subscriber {} failed", subscriber.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.querydsl.repository.support;
+
+/**
+ * {@link ChangeStream} 구독자. 빈으로 등록하면 시작할 때 구독된다. (isEnabled 가 false 인 빈은 구독하지 않는다)
+ * 구독자마다 전용 스레드에서 배치를 커밋 순서대로 하나씩 받는다.
+ */
+public interface ChangeSubscriber {
+
+    /**
+     * 빈으로 등록된 구독자를 시작할 때 구독할지. 구독하지 않으면 큐와 전용 스레드를 만들지 않는다.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 이 타입의 변경만 받는다.
+     */
+    default boolean accepts(Class<?> entityType) {
+        return true;
+    }
+
+    void onChanges(ChangeBatch batch);
+
+    /**
+     * 처리가 밀려 큐가 넘치면 쌓인 배치를 버리고 호출된다.
+     * lastLostSequence 까지의 배치를 받지 못했을 수 있으므로 전체를 다시 읽어야 한다. 이후 배치는 계속 전달된다.
+     */
+    default void onOverflow(long lastLostSequence) {
+    }
+}
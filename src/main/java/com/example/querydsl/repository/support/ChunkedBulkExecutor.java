@@ -0,0 +1,142 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 벌크 update/delete 를 청크로 나눠 실행한다. 청크마다 직전 청크의 마지막 id 다음부터 대상 id 를 chunkSize 개 조회하고
+ * (키셋), 그 첫 id 와 마지막 id 사이를 update/delete 한다. id 가 듬성듬성해도 빈 청크가 생기지 않는다.
+ * 전체 청크 수는 시작할 때 센 대상 건수로 계산한 추정치다.
+ * 트랜잭션 밖에서 호출하면 청크마다 커밋해서 락을 오래 잡지 않는다.
+ * 이미 트랜잭션이 있으면 그 트랜잭션에 참여하므로 청크로 나눠 실행만 하고 커밋은 호출한 쪽에서 한다.
+ * 청크를 실행할 때마다 영속성 컨텍스트를 비워서 벌크 연산 이전 상태의 엔티티가 남지 않게 한다.
+ * <pre>
+ * executor.update(member, member.id, member.age.lt(50),
+ *         clause -> clause.set(member.age, member.age.add(1)), progress -> log.info("{}", progress));
+ * </pre>
+ */
+@Component
+public class ChunkedBulkExecutor {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultChunkSize;
+
+    public ChunkedBulkExecutor(EntityManager em,
+                               PlatformTransactionManager transactionManager,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${querydsl.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.em = em;
+        //청크마다 BulkWriteEvent 를 발행한다.
+        this.queryFactory = new ChangeCapturingQueryFactory(em, eventPublisher);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    public BulkProgress update(EntityPath<?> entity, NumberPath<Long> id, Predicate where,
+                               Consumer<JPAUpdateClause> set, Consumer<BulkProgress> listener) {
+        return update(entity, id, where, set, defaultChunkSize, listener);
+    }
+
+    public BulkProgress update(EntityPath<?> entity, NumberPath<Long> id, Predicate where,
+                               Consumer<JPAUpdateClause> set, int chunkSize, Consumer<BulkProgress> listener) {
+        return execute(entity, id, where, chunkSize, listener, chunk -> {
+            JPAUpdateClause clause = queryFactory.update(entity);
+            set.accept(clause);
+            return clause.where(where, chunk).execute();
+        });
+    }
+
+    public BulkProgress delete(EntityPath<?> entity, NumberPath<Long> id, Predicate where,
+                               Consumer<BulkProgress> listener) {
+        return delete(entity, id, where, defaultChunkSize, listener);
+    }
+
+    public BulkProgress delete(EntityPath<?> entity, NumberPath<Long> id, Predicate where,
+                               int chunkSize, Consumer<BulkProgress> listener) {
+        return execute(entity, id, where, chunkSize, listener, chunk -> {
+            JPADeleteClause clause = queryFactory.delete(entity);
+            return clause.where(where, chunk).execute();
+        });
+    }
+
+    private BulkProgress execute(EntityPath<?> entity, NumberPath<Long> id, Predicate where, int chunkSize,
+                                 Consumer<BulkProgress> listener, Function<Predicate, Long> chunkStatement) {
+        Assert.isTrue(chunkSize > 0, "Chunk size must be positive!");
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            //호출한 쪽의 변경 사항이 벌크 연산 대상에 반영되도록 먼저 내보낸다.
+            em.flush();
+        }
+        Long total = transactionTemplate.execute(status -> queryFactory
+                .select(id.count())
+                .from(entity)
+                .where(where)
+                .fetchOne());
+        if (total == null || total == 0) {
+            BulkProgress done = new BulkProgress(0, 0, 0, null);
+            listener.accept(done);
+            return done;
+        }
+
+        //실행 중에 대상이 늘거나 줄 수 있으므로 처음 센 건수로 계산한 값은 추정치다.
+        long estimatedChunks = (total + chunkSize - 1) / chunkSize;
+        long completedChunks = 0;
+        long affectedRows = 0;
+        Long lastId = null;
+        BulkProgress progress = null;
+        while (true) {
+            Long after = lastId;
+            List<Long> ids = transactionTemplate.execute(status -> queryFactory
+                    .select(id)
+                    .from(entity)
+                    .where(where, after == null ? null : id.gt(after))
+                    .orderBy(id.asc())
+                    .limit(chunkSize)
+                    .fetch());
+            if (ids == null || ids.isEmpty()) {
+                break;
+            }
+            long from = ids.get(0);
+            long to = ids.get(ids.size() - 1);
+            Long affected = transactionTemplate.execute(status -> {
+                long rows = chunkStatement.apply(id.between(from, to));
+                em.clear();
+                return rows;
+            });
+            completedChunks++;
+            affectedRows += affected == null ? 0 : affected;
+            lastId = to;
+            //청크가 덜 찼으면 마지막 청크다.
+            boolean last = ids.size() < chunkSize;
+            long totalChunks = last ? completedChunks : Math.max(estimatedChunks, completedChunks);
+            progress = new BulkProgress(completedChunks, totalChunks, affectedRows, lastId);
+            listener.accept(progress);
+            if (last) {
+                break;
+            }
+        }
+        if (progress == null || !progress.isDone()) {
+            //추정보다 일찍 끝났다.
+            progress = new BulkProgress(completedChunks, completedChunks, affectedRows, lastId);
+            listener.accept(progress);
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 카운트 쿼리 결과 캐시.
+ * TTL 이 지난 값은 일단 그대로 돌려주고 백그라운드에서 다시 계산한다(approximate).
+ * 정확한 값이 필요한 요청은 exact 로 조회하면 항상 카운트 쿼리를 실행한다.
+ * Member/Team 변경(벌크 연산 포함)이 커밋되면 전체를 무효화한다.
+ */
+@Slf4j
+@Component
+public class CountCache {
+
+    private final long ttlMillis;
+    private final Map<Object, Entry> entries;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService refresher;
+    //트랜잭션마다 한 번만 무효화한다.
+    private final AfterCommitBuffer<Boolean> invalidation =
+            new AfterCommitBuffer<>(1, written -> invalidateAll(), this::invalidateAll);
+
+    public CountCache(@Value("${querydsl.count-cache.ttl:30s}") Duration ttl,
+                      @Value("${querydsl.count-cache.max-size:1000}") int maxSize) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.refresher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxSize), runnable -> {
+                    Thread thread = new Thread(runnable, "count-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 카운트 쿼리의 from/join/where/groupBy/having 으로 캐시 키를 만든다.
+     * Querydsl 표현식은 상수까지 포함해서 equals 가 정의되어 있으므로 같은 검색 조건이면 같은 키가 된다.
+     */
+    public static Object keyOf(JPAQuery<?> countQuery) {
+        QueryMetadata metadata = countQuery.getMetadata();
+        return Arrays.asList(metadata.getJoins(), metadata.getWhere(), metadata.getGroupBy(), metadata.getHaving());
+    }
+
+    public long count(Object key, LongSupplier counter, boolean exact) {
+        if (!SharedCacheSupport.isCacheableRead()) {
+            return counter.getAsLong();
+        }
+        Entry entry = exact ? null : entries.get(key);
+        if (entry == null) {
+            return load(key, counter);
+        }
+        if (entry.isExpired(ttlMillis)) {
+            refreshAsync(key, counter);
+        }
+        return entry.count;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @EventListener
+    public void onEntityWrite(EntityWriteEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            invalidation.add(Boolean.TRUE);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            invalidateAll();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private long load(Object key, LongSupplier counter) {
+        long startGeneration = generation.get();
+        long count = counter.getAsLong();
+        //계산 도중 무효화됐다면 오래된 값일 수 있으므로 담지 않는다.
+        if (generation.get() == startGeneration) {
+            entries.put(key, new Entry(count));
+        }
+        return count;
+    }
+
+    private void refreshAsync(Object key, LongSupplier counter) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(key, counter);
+                } catch (RuntimeException e) {
+                    log.warn("count cache refresh failed. key={}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //갱신 대기열이 가득 차면 이번 갱신은 건너뛰고 다음 조회 때 다시 시도한다.
+            refreshing.remove(key);
+        }
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Entry(long count) {
+            this.count = count;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
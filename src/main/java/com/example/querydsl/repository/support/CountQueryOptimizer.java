@@ -0,0 +1,337 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 컨텐츠 쿼리에서 같은 건수를 세는 더 가벼운 카운트 쿼리를 만든다.
+ * <ul>
+ *     <li>order by, offset/limit, fetch join 플래그를 뺀다</li>
+ *     <li>조건/프로젝션/group by 에서 쓰이지 않는 단일 연관(@ManyToOne, @OneToOne) left join 을 뺀다</li>
+ *     <li>단일 연관 조인이 그 별칭만 쓰는 null 을 허용하지 않는 비교 조건(eq, goe, like ...)에만 쓰이면
+ *     조인 대신 exists 서브쿼리로 바꾼다. 예) left join member.team team where team.name = ?
+ *     -> where exists (select 1 from Team team where team.name = ? and team = member.team)
+ *     inner/left join 만 바꾸고 right/full join 은 그대로 둔다.</li>
+ * </ul>
+ * 컬렉션 조인은 행 수를 바꾸므로 그대로 둔다.
+ */
+public final class CountQueryOptimizer {
+
+    //별칭 경로 하나와 상수만 받는 비교. 별칭이 null 이면 항상 거짓이므로 left join 을 exists 로 바꿔도 건수가 같다.
+    private static final Set<Ops> NULL_REJECTING = EnumSet.of(Ops.EQ, Ops.EQ_IGNORE_CASE, Ops.NE,
+            Ops.GT, Ops.GOE, Ops.LT, Ops.LOE, Ops.BETWEEN, Ops.IN, Ops.LIKE, Ops.LIKE_IC, Ops.LIKE_ESCAPE,
+            Ops.STARTS_WITH, Ops.STARTS_WITH_IC, Ops.ENDS_WITH, Ops.ENDS_WITH_IC,
+            Ops.STRING_CONTAINS, Ops.STRING_CONTAINS_IC);
+
+    private CountQueryOptimizer() {
+    }
+
+    public static JPAQuery<?> optimize(EntityManager em, JPAQuery<?> contentQuery) {
+        QueryMetadata source = contentQuery.getMetadata();
+        Metamodel metamodel = em.getMetamodel();
+
+        List<JoinExpression> joins = new ArrayList<>(source.getJoins());
+        List<Predicate> where = conjuncts(source.getWhere());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < joins.size(); i++) {
+                JoinExpression join = joins.get(i);
+                if (!isToOne(metamodel, join)) {
+                    continue;
+                }
+                Path<?> alias = alias(join);
+                Set<Expression<?>> others = roots(source, joins, i);
+                if (alias != null && others.contains(alias)) {
+                    continue;
+                }
+                List<Predicate> aliasWhere = new ArrayList<>();
+                List<Predicate> rest = new ArrayList<>();
+                for (Predicate predicate : where) {
+                    (alias != null && roots(predicate).contains(alias) ? aliasWhere : rest).add(predicate);
+                }
+                if (aliasWhere.isEmpty() && isDroppable(join)) {
+                    joins.remove(i);
+                    changed = true;
+                    break;
+                }
+                if (!aliasWhere.isEmpty() && isSemiJoinable(join) && join.getCondition() == null
+                        && alias instanceof EntityPath && aliasWhere.stream().allMatch(predicate -> isNullRejecting(predicate, alias))) {
+                    aliasWhere.add(ExpressionUtils.eq((Expression) alias, (Expression) target(join)));
+                    rest.add(JPAExpressions.selectOne()
+                            .from((EntityPath<?>) alias)
+                            .where(aliasWhere.toArray(new Predicate[0]))
+                            .exists());
+                    where = rest;
+                    joins.remove(i);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        DefaultQueryMetadata count = new DefaultQueryMetadata();
+        count.setValidate(false);
+        count.setDistinct(source.isDistinct());
+        if (source.getProjection() != null) {
+            count.setProjection(source.getProjection());
+        }
+        for (JoinExpression join : joins) {
+            count.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                count.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    count.addJoinFlag(flag);
+                }
+            }
+        }
+        for (Predicate predicate : where) {
+            count.addWhere(predicate);
+        }
+        for (Expression<?> groupBy : source.getGroupBy()) {
+            count.addGroupBy(groupBy);
+        }
+        if (source.getHaving() != null) {
+            count.addHaving(source.getHaving());
+        }
+        for (QueryFlag flag : source.getFlags()) {
+            count.addFlag(flag);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            count.setParam((ParamExpression) param.getKey(), param.getValue());
+        }
+        return new JPAQuery<>(em, count);
+    }
+
+    //fetch join 이거나 별칭이 있는 left join 이면 뺄 수 있다. (별칭 없는 조인은 member.team.name 처럼 참조돼도 알 수 없다)
+    private static boolean isDroppable(JoinExpression join) {
+        return join.getType() == JoinType.LEFTJOIN
+                && (alias(join) != null || join.hasFlag(JPAQueryMixin.FETCH));
+    }
+
+    //inner/left join 만 exists 로 바꿀 수 있다. right/full join 은 왼쪽이 없는 행도 세므로 건수가 달라진다.
+    private static boolean isSemiJoinable(JoinExpression join) {
+        return join.getType() == JoinType.INNERJOIN || join.getType() == JoinType.JOIN
+                || join.getType() == JoinType.LEFTJOIN;
+    }
+
+    private static boolean isToOne(Metamodel metamodel, JoinExpression join) {
+        Expression<?> target = target(join);
+        if (!(target instanceof Path)) {
+            return false;
+        }
+        Path<?> parent = ((Path<?>) target).getMetadata().getParent();
+        if (parent == null) {
+            return false;
+        }
+        String name = ((Path<?>) target).getMetadata().getName();
+        try {
+            ManagedType<?> type = metamodel.managedType(parent.getType());
+            Attribute.PersistentAttributeType attributeType = type.getAttribute(name).getPersistentAttributeType();
+            return attributeType == Attribute.PersistentAttributeType.MANY_TO_ONE
+                    || attributeType == Attribute.PersistentAttributeType.ONE_TO_ONE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    //leftJoin(member.team, team) -> member.team
+    private static Expression<?> target(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            return ((Operation<?>) target).getArg(0);
+        }
+        return target;
+    }
+
+    //leftJoin(member.team, team) -> team, 별칭이 없으면 null
+    private static Path<?> alias(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            Expression<?> alias = ((Operation<?>) target).getArg(1);
+            return alias instanceof Path ? (Path<?>) alias : null;
+        }
+        return null;
+    }
+
+    private static boolean isNullRejecting(Predicate predicate, Path<?> alias) {
+        if (!(predicate instanceof Operation)) {
+            return false;
+        }
+        Operation<?> operation = (Operation<?>) predicate;
+        Operator operator = operation.getOperator();
+        if (!(operator instanceof Ops) || !NULL_REJECTING.contains(operator) || operation.getArgs().isEmpty()) {
+            return false;
+        }
+        Expression<?> first = operation.getArg(0);
+        if (!(first instanceof Path) || !alias.equals(((Path<?>) first).getRoot())) {
+            return false;
+        }
+        for (Expression<?> arg : operation.getArgs().subList(1, operation.getArgs().size())) {
+            if (!roots(arg).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //index 번째 조인을 제외한 나머지가 참조하는 루트 경로 (where 제외)
+    private static Set<Expression<?>> roots(QueryMetadata source, List<JoinExpression> joins, int index) {
+        Set<Expression<?>> roots = new HashSet<>();
+        if (source.getProjection() != null) {
+            source.getProjection().accept(RootCollector.INSTANCE, roots);
+        }
+        for (Expression<?> groupBy : source.getGroupBy()) {
+            groupBy.accept(RootCollector.INSTANCE, roots);
+        }
+        if (source.getHaving() != null) {
+            source.getHaving().accept(RootCollector.INSTANCE, roots);
+        }
+        for (int i = 0; i < joins.size(); i++) {
+            if (i == index) {
+                continue;
+            }
+            target(joins.get(i)).accept(RootCollector.INSTANCE, roots);
+            if (joins.get(i).getCondition() != null) {
+                joins.get(i).getCondition().accept(RootCollector.INSTANCE, roots);
+            }
+        }
+        Predicate condition = joins.get(index).getCondition();
+        if (condition != null) {
+            //조인 조건에 다른 별칭이 있으면 그 조인도 남아 있어야 하지만 이 조인 자신은 참조로 세지 않는다.
+            Set<Expression<?>> own = roots(condition);
+            own.remove(alias(joins.get(index)));
+            roots.addAll(own);
+        }
+        return roots;
+    }
+
+    private static Set<Expression<?>> roots(Expression<?> expression) {
+        Set<Expression<?>> roots = new HashSet<>();
+        expression.accept(RootCollector.INSTANCE, roots);
+        return roots;
+    }
+
+    private static List<Predicate> conjuncts(Predicate where) {
+        List<Predicate> conjuncts = new ArrayList<>();
+        if (where != null) {
+            addConjuncts(where, conjuncts);
+        }
+        return conjuncts;
+    }
+
+    private static void addConjuncts(Predicate predicate, List<Predicate> conjuncts) {
+        if (predicate instanceof Operation && ((Operation<?>) predicate).getOperator() == Ops.AND) {
+            for (Expression<?> arg : ((Operation<?>) predicate).getArgs()) {
+                addConjuncts((Predicate) arg, conjuncts);
+            }
+        } else {
+            conjuncts.add(predicate);
+        }
+    }
+
+    /**
+     * 표현식이 참조하는 경로의 루트(별칭)를 모은다. 서브쿼리는 바깥 별칭을 참조할 수 있으므로 안까지 본다.
+     */
+    private static final class RootCollector implements Visitor<Void, Set<Expression<?>>> {
+
+        static final RootCollector INSTANCE = new RootCollector();
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Expression<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Expression<?>> roots) {
+            visitAll(expr.getArgs(), roots);
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Expression<?>> roots) {
+            visitAll(expr.getArgs(), roots);
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Expression<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Expression<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Expression<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            for (JoinExpression join : metadata.getJoins()) {
+                join.getTarget().accept(this, roots);
+                if (join.getCondition() != null) {
+                    join.getCondition().accept(this, roots);
+                }
+            }
+            List<Expression<?>> parts = new ArrayList<>(metadata.getGroupBy());
+            parts.addAll(Arrays.asList(metadata.getProjection(), metadata.getWhere(), metadata.getHaving()));
+            visitAll(parts, roots);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Expression<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    ((Expression<?>) arg).accept(this, roots);
+                }
+            }
+            return null;
+        }
+
+        private void visitAll(Collection<? extends Expression<?>> expressions, Set<Expression<?>> roots) {
+            for (Expression<?> expression : expressions) {
+                if (expression != null) {
+                    expression.accept(this, roots);
+                }
+            }
+        }
+    }
+}
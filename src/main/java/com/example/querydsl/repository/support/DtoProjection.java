@@ -0,0 +1,256 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.core.annotations.QueryProjection;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.beans.Introspector;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DTO 필드 이름으로 필요한 컬럼만 조회하는 프로젝션을 만든다. 엔티티를 영속성 컨텍스트에 올리지 않는다.
+ * <ul>
+ *     <li>엔티티 속성과 이름이 같은 필드: username -> member.username</li>
+ *     <li>엔티티 이름 + 속성: memberId -> member.id</li>
+ *     <li>단일 연관 이름 + 속성: teamName -> team.name (연관은 연관 이름을 별칭으로 left join)</li>
+ *     <li>단일 연관 이름 + 식별자: teamId -> member.team.id (외래 키, 조인하지 않음)</li>
+ * </ul>
+ * 연관 조인의 별칭이 연관 이름과 같으므로 QTeam.team 같은 기본 Q타입으로 조건을 추가할 수 있다.
+ * 파라미터 이름과 타입이 필드와 같은 @QueryProjection 생성자가 있으면 생성자로, 없으면 필드 이름으로 값을 넣는다.
+ */
+public final class DtoProjection<D> {
+
+    private static final Map<Key, DtoProjection<?>> CACHE = new ConcurrentHashMap<>();
+
+    private final EntityPath<?> from;
+    private final FactoryExpression<D> projection;
+    private final Map<String, Joined> joins;
+
+    private DtoProjection(EntityPath<?> from, FactoryExpression<D> projection, Map<String, Joined> joins) {
+        this.from = from;
+        this.projection = projection;
+        this.joins = joins;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <D> DtoProjection<D> of(EntityManager em, Class<D> dtoClass, EntityPath<?> from) {
+        Key key = new Key(dtoClass, from.getType(), from.getMetadata().getName());
+        return (DtoProjection<D>) CACHE.computeIfAbsent(key, k -> create(em.getMetamodel(), dtoClass, from));
+    }
+
+    public FactoryExpression<D> getProjection() {
+        return projection;
+    }
+
+    /**
+     * select(프로젝션).from(엔티티) 에 필요한 연관을 left join 한 쿼리. 조건, 정렬, 페이징은 호출하는 쪽에서 추가한다.
+     * 조건에만 쓰이는 연관은 associations 로 넘기면 같은 규칙(연관 이름 = 별칭)으로 left join 한다.
+     * 예) select(queryFactory, member.team)
+     */
+    @SuppressWarnings("unchecked")
+    public JPAQuery<D> select(JPAQueryFactory queryFactory, EntityPath<?>... associations) {
+        JPAQuery<D> query = queryFactory.select(projection).from(from);
+        PathBuilder<Object> root = new PathBuilder<>((Class<Object>) from.getType(), from.getMetadata());
+        Set<String> joined = new HashSet<>();
+        for (Joined join : joins.values()) {
+            query.leftJoin(root.get(join.attribute, (Class<Object>) join.path.getType()), join.path);
+            joined.add(join.attribute);
+        }
+        for (EntityPath<?> association : associations) {
+            String attribute = association.getMetadata().getName();
+            if (joined.add(attribute)) {
+                query.leftJoin((EntityPath<Object>) association, new PathBuilder<>((Class<Object>) association.getType(), attribute));
+            }
+        }
+        return query;
+    }
+
+    private static <D> DtoProjection<D> create(Metamodel metamodel, Class<D> dtoClass, EntityPath<?> from) {
+        EntityType<?> rootType = metamodel.entity(from.getType());
+        @SuppressWarnings("unchecked")
+        PathBuilder<Object> root = new PathBuilder<>((Class<Object>) from.getType(), from.getMetadata());
+        String rootName = Introspector.decapitalize(rootType.getName());
+
+        Map<String, Field> fields = new LinkedHashMap<>();
+        Map<String, Expression<?>> columns = new LinkedHashMap<>();
+        Map<String, Joined> joins = new LinkedHashMap<>();
+        for (Field field : dtoClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || field.isSynthetic()) {
+                continue;
+            }
+            fields.put(field.getName(), field);
+            columns.put(field.getName(), column(rootType, root, rootName, field, joins));
+        }
+
+        Constructor<?> constructor = projectionConstructor(dtoClass, fields);
+        FactoryExpression<D> projection;
+        if (constructor != null) {
+            //필드 선언 순서는 보장되지 않으므로 생성자 파라미터 이름 순서로 컬럼을 넘긴다.
+            Parameter[] parameters = constructor.getParameters();
+            Expression<?>[] arguments = new Expression<?>[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                arguments[i] = columns.get(parameters[i].getName());
+            }
+            projection = Projections.constructor(dtoClass, constructor.getParameterTypes(), arguments);
+        } else {
+            List<Expression<?>> aliased = new ArrayList<>();
+            columns.forEach((name, column) -> aliased.add(ExpressionUtils.as(column, name)));
+            projection = Projections.fields(dtoClass, aliased.toArray(new Expression<?>[0]));
+        }
+        return new DtoProjection<>(from, projection, joins);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<?> column(EntityType<?> rootType, PathBuilder<Object> root, String rootName,
+                                        Field field, Map<String, Joined> joins) {
+        String name = field.getName();
+        Class<Object> type = (Class<Object>) ClassUtils.resolvePrimitiveIfNecessary(field.getType());
+
+        if (isBasic(rootType, name)) {
+            return root.get(name, type);
+        }
+        String rest = rest(name, rootName);
+        if (rest != null && isBasic(rootType, rest)) {
+            return root.get(rest, type);
+        }
+        for (Attribute<?, ?> attribute : rootType.getAttributes()) {
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.MANY_TO_ONE
+                    && attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.ONE_TO_ONE) {
+                continue;
+            }
+            rest = rest(name, attribute.getName());
+            ManagedType<?> target = (ManagedType<?>) ((SingularAttribute<?, ?>) attribute).getType();
+            if (rest != null && isId(target, rest)) {
+                //teamId -> member.team.id 는 외래 키 컬럼이므로 조인하지 않는다.
+                return root.get(attribute.getName(), (Class<Object>) attribute.getJavaType()).get(rest, type);
+            }
+            if (rest != null && isBasic(target, rest)) {
+                Joined joined = joins.computeIfAbsent(attribute.getName(),
+                        alias -> new Joined(alias, new PathBuilder<>((Class<Object>) attribute.getJavaType(), alias)));
+                return joined.path.get(rest, type);
+            }
+        }
+        throw new IllegalArgumentException("Cannot map " + field.getDeclaringClass().getSimpleName() + "."
+                + name + " to an attribute of " + rootType.getName());
+    }
+
+    //teamName, team -> name
+    private static String rest(String name, String prefix) {
+        if (name.length() <= prefix.length() || !name.startsWith(prefix)) {
+            return null;
+        }
+        return StringUtils.uncapitalize(name.substring(prefix.length()));
+    }
+
+    private static boolean isId(ManagedType<?> type, String name) {
+        for (Attribute<?, ?> attribute : type.getAttributes()) {
+            if (attribute.getName().equals(name)) {
+                return attribute instanceof SingularAttribute && ((SingularAttribute<?, ?>) attribute).isId();
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBasic(ManagedType<?> type, String name) {
+        for (Attribute<?, ?> attribute : type.getAttributes()) {
+            if (attribute.getName().equals(name)) {
+                return attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 파라미터 이름과 타입이 DTO 필드와 모두 같은 @QueryProjection 생성자. 파라미터 수가 같은 생성자가 있는데
+     * 이름이 맞지 않으면 값이 엇갈려 들어갈 수 있으므로 실패한다. (파라미터 이름은 -parameters 로 컴파일해야 남는다)
+     */
+    private static Constructor<?> projectionConstructor(Class<?> dtoClass, Map<String, Field> fields) {
+        Constructor<?> mismatched = null;
+        for (Constructor<?> constructor : dtoClass.getConstructors()) {
+            if (!constructor.isAnnotationPresent(QueryProjection.class)
+                    || constructor.getParameterCount() != fields.size()) {
+                continue;
+            }
+            if (matches(constructor, fields)) {
+                return constructor;
+            }
+            mismatched = constructor;
+        }
+        if (mismatched != null) {
+            throw new IllegalArgumentException("Parameter names of " + mismatched + " do not match the fields "
+                    + fields.keySet() + " (compile with -parameters)");
+        }
+        return null;
+    }
+
+    private static boolean matches(Constructor<?> constructor, Map<String, Field> fields) {
+        for (Parameter parameter : constructor.getParameters()) {
+            Field field = fields.get(parameter.getName());
+            if (!parameter.isNamePresent() || field == null || field.getType() != parameter.getType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Joined {
+        private final String attribute;
+        private final PathBuilder<Object> path;
+
+        Joined(String attribute, PathBuilder<Object> path) {
+            this.attribute = attribute;
+            this.path = path;
+        }
+    }
+
+    private static class Key {
+        private final Class<?> dtoClass;
+        private final Class<?> entityClass;
+        private final String alias;
+
+        Key(Class<?> dtoClass, Class<?> entityClass, String alias) {
+            this.dtoClass = dtoClass;
+            this.entityClass = entityClass;
+            this.alias = alias;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return dtoClass.equals(key.dtoClass) && entityClass.equals(key.entityClass) && alias.equals(key.alias);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dtoClass, entityClass, alias);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 엔티티 insert/update/delete 가 flush 될 때 발행되는 애플리케이션 이벤트.
+ * state 는 쓰기 이후, previousState 는 쓰기 이전의 속성 값(속성 이름 -> 값)이다.
+ * 알 수 없으면 null 이다. (insert 의 previousState, delete 의 state, 준영속 엔티티 merge 의 previousState)
+ * 맵은 getState/getPreviousState 를 처음 부를 때 만든다. 속성 몇 개만 필요하면 stateOf/previousStateOf 를 쓴다.
+ */
+@ToString
+public class EntityWriteEvent {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    @Getter
+    private final Class<?> entityType;
+    @Getter
+    private final Object id;
+    @Getter
+    private final Type type;
+    @ToString.Exclude
+    private final String[] propertyNames;
+    @ToString.Exclude
+    private final Object[] values;
+    @ToString.Exclude
+    private final Object[] previousValues;
+    @ToString.Exclude
+    private Map<String, Object> state;
+    @ToString.Exclude
+    private Map<String, Object> previousState;
+
+    public EntityWriteEvent(Class<?> entityType, Object id, Type type) {
+        this(entityType, id, type, null, null);
+    }
+
+    public EntityWriteEvent(Class<?> entityType, Object id, Type type,
+                            Map<String, Object> state, Map<String, Object> previousState) {
+        this.entityType = entityType;
+        this.id = id;
+        this.type = type;
+        this.propertyNames = null;
+        this.values = null;
+        this.previousValues = null;
+        this.state = state;
+        this.previousState = previousState;
+    }
+
+    /**
+     * values/previousValues 는 propertyNames 와 같은 순서의 속성 값 배열이다. (Hibernate 의 state 배열)
+     */
+    public EntityWriteEvent(Class<?> entityType, Object id, Type type,
+                            String[] propertyNames, Object[] values, Object[] previousValues) {
+        this.entityType = entityType;
+        this.id = id;
+        this.type = type;
+        this.propertyNames = propertyNames;
+        this.values = values;
+        this.previousValues = previousValues;
+    }
+
+    public boolean isFor(Class<?> entityType) {
+        return this.entityType.equals(entityType);
+    }
+
+    public boolean hasState() {
+        return values != null || state != null;
+    }
+
+    public boolean hasPreviousState() {
+        return previousValues != null || previousState != null;
+    }
+
+    public Map<String, Object> getState() {
+        if (state == null && values != null) {
+            state = toMap(values);
+        }
+        return state;
+    }
+
+    public Map<String, Object> getPreviousState() {
+        if (previousState == null && previousValues != null) {
+            previousState = toMap(previousValues);
+        }
+        return previousState;
+    }
+
+    /**
+     * 쓰기 이후 속성 값. state 를 모르거나 없는 속성이면 null.
+     */
+    public Object stateOf(String property) {
+        return valueOf(values, state, property);
+    }
+
+    /**
+     * 쓰기 이전 속성 값. previousState 를 모르거나 없는 속성이면 null.
+     */
+    public Object previousStateOf(String property) {
+        return valueOf(previousValues, previousState, property);
+    }
+
+    private Object valueOf(Object[] values, Map<String, Object> map, String property) {
+        if (values == null) {
+            return map == null ? null : map.get(property);
+        }
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (propertyNames[i].equals(property)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    //연관 속성은 엔티티(프록시일 수 있음) 그대로 담긴다.
+    private Map<String, Object> toMap(Object[] values) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < propertyNames.length; i++) {
+            map.put(propertyNames[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate post insert/update/delete 리스너를 등록해서 {@link EntityWriteEvent} 로 다시 발행한다.
+ * 캐시는 이벤트마다 동기화를 만들지 않도록 {@link AfterCommitBuffer} 에 무효화할 값만 모았다가 커밋 이후에 무효화한다.
+ * 벌크 update/delete 는 영속성 컨텍스트를 거치지 않으므로 여기서 잡히지 않는다. ({@link ChangeCapturingQueryFactory} 참고)
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityWriteEventPublisher implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private final transient EntityManagerFactory entityManagerFactory;
+    private final transient ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(event.getPersister(), event.getId(), EntityWriteEvent.Type.INSERT,
+                event.getState(), null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(event.getPersister(), event.getId(), EntityWriteEvent.Type.UPDATE,
+                event.getState(), event.getOldState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(event.getPersister(), event.getId(), EntityWriteEvent.Type.DELETE,
+                null, event.getDeletedState());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    //Hibernate 가 state 배열을 계속 쓰므로 복사만 해 두고 맵은 리스너가 필요할 때 만든다.
+    private void publish(EntityPersister persister, Object id, EntityWriteEvent.Type type,
+                         Object[] state, Object[] previousState) {
+        eventPublisher.publishEvent(new EntityWriteEvent(persister.getMappedClass(), id, type,
+                persister.getPropertyNames(), copy(state), copy(previousState)));
+    }
+
+    private static Object[] copy(Object[] state) {
+        return state == null ? null : state.clone();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 여러 키를 in (...) 조건으로 나눠 조회하고 키별로 묶는다.
+ * 한 번에 넣는 키 수는 querydsl.in-list.chunk-size 와 방언의 in 목록 제한(Oracle 1000 등) 중 작은 값이다.
+ * 트랜잭션 밖에서 호출되면 청크마다 읽기 전용 트랜잭션을 열어 {@link AsyncQueryExecutor} 로 동시에 실행하고,
+ * 트랜잭션 안이면 커밋되지 않은 변경을 볼 수 있도록 현재 트랜잭션에서 차례로 실행한다.
+ * 이미 {@link AsyncQueryExecutor} 작업 안에서 호출되면({@link BatchLoader}) 같은 실행기를 기다리지 않도록 차례로 실행한다.
+ */
+@Component
+public class InListLookup {
+
+    private final AsyncQueryExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public InListLookup(EntityManager em, AsyncQueryExecutor executor, PlatformTransactionManager transactionManager,
+                        @Value("${querydsl.in-list.chunk-size:500}") int chunkSize) {
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        int dialectLimit = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getInExpressionCountLimit();
+        this.chunkSize = dialectLimit > 0 ? Math.min(chunkSize, dialectLimit) : chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 요청한 키는 결과가 없어도 빈 목록으로 들어 있다. 중복 키는 한 번만 조회한다.
+     *
+     * @param query 키 청크 하나를 in 조건으로 조회한다
+     * @param keyOf 결과 행의 키
+     */
+    public <K, V> Map<K, List<V>> fetch(Collection<K> keys, Function<List<K>, List<V>> query, Function<V, K> keyOf) {
+        Map<K, List<V>> result = new LinkedHashMap<>();
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        for (K key : distinct) {
+            result.put(key, new ArrayList<>());
+        }
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(distinct.subList(from, Math.min(distinct.size(), from + chunkSize)));
+        }
+
+        List<List<V>> rows = new ArrayList<>();
+        if (chunks.size() > 1 && !TransactionSynchronizationManager.isActualTransactionActive()
+                && !AsyncQueryExecutor.isQueryThread()) {
+            List<CompletableFuture<List<V>>> futures = new ArrayList<>();
+            for (List<K> chunk : chunks) {
+                futures.add(executor.supply(() -> transactionTemplate.execute(status -> query.apply(chunk))));
+            }
+            for (CompletableFuture<List<V>> future : futures) {
+                rows.add(future.join());
+            }
+        } else {
+            for (List<K> chunk : chunks) {
+                rows.add(query.apply(chunk));
+            }
+        }
+
+        for (List<V> chunkRows : rows) {
+            for (V row : chunkRows) {
+                List<V> values = result.get(keyOf.apply(row));
+                if (values != null) {
+                    values.add(row);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.querydsl.repository.support;
+
+/**
+ * 클라이언트가 보낸 키셋 페이징 토큰을 해석할 수 없거나 요청과 맞지 않는다. 웹 계층에서는 400 으로 응답한다.
+ */
+public class InvalidContinuationTokenException extends IllegalArgumentException {
+
+    public InvalidContinuationTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidContinuationTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이징의 다음 페이지 위치(정렬 키, 마지막 정렬 값, 마지막 id)를 담는 커서.
+ * 클라이언트에는 {@link #encode()} 결과를 불투명 토큰으로만 내려준다.
+ * 해석할 수 없는 토큰은 {@link InvalidContinuationTokenException} 을 던진다.
+ */
+@Getter
+public class KeysetCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final String sortKey;
+    private final long sortValue;
+    private final long lastId;
+
+    public KeysetCursor(String sortKey, long sortValue, long lastId) {
+        this.sortKey = sortKey;
+        this.sortValue = sortValue;
+        this.lastId = lastId;
+    }
+
+    public String encode() {
+        String raw = sortKey + SEPARATOR + sortValue + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR);
+            if (parts.length == 3) {
+                return new KeysetCursor(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException("Invalid continuation token: " + token, e);
+        }
+        throw new InvalidContinuationTokenException("Invalid continuation token: " + token);
+    }
+}
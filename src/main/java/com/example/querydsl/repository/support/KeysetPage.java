@@ -0,0 +1,27 @@
+package com.example.querydsl.repository.support;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 키셋 페이징 결과. 전체 카운트 대신 다음 페이지를 조회할 토큰을 돌려준다.
+ */
+@Getter
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextToken;
+
+    public KeysetPage(List<T> content, String nextToken) {
+        this.content = content;
+        this.nextToken = nextToken;
+    }
+
+    //bean getter 이름이 아니므로 JSON 에 포함되도록 이름을 지정한다.
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색 결과 캐시. 정규화한 검색 조건 + 페이지로 키를 만들고 결과는 MemberTeamDto 배열로 담는다.
+ * 담긴 결과의 추정 메모리 합이 max-bytes 를 넘으면 오래 사용하지 않은 항목부터 버린다.
+ * 회원/팀 변경이 커밋되면 변경 전후 값이 조건에 해당하는 항목만 무효화하고, 벌크 연산은 전체를 무효화한다.
+ * 무효화 조건은 트랜잭션마다 모아 두었다가 커밋 후 한 번에 적용하고, MAX_PENDING_INVALIDATIONS 개를 넘으면 전체를 무효화한다.
+ * 돌려주는 목록은 캐시와 공유하므로 호출한 쪽에서 DTO 를 수정하면 안 된다.
+ */
+@Component
+public class MemberSearchCache {
+
+    public static final String REQUESTS = "querydsl.search.cache.requests";
+    public static final String ENTRIES = "querydsl.search.cache.entries";
+    public static final String BYTES = "querydsl.search.cache.bytes";
+    public static final String HIT_RATIO = "querydsl.search.cache.hit.ratio";
+
+    static final int MAX_PENDING_INVALIDATIONS = 1000;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final AfterCommitBuffer<Predicate<Entry>> invalidation =
+            new AfterCommitBuffer<>(MAX_PENDING_INVALIDATIONS, this::invalidateAny, this::invalidateAll);
+    private long bytes;
+
+    public MemberSearchCache(MeterRegistry registry,
+                             @Value("${querydsl.search-cache.enabled:true}") boolean enabled,
+                             @Value("${querydsl.search-cache.max-bytes:16777216}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder(REQUESTS).tag("result", "hit").register(registry);
+        this.misses = Counter.builder(REQUESTS).tag("result", "miss").register(registry);
+        Gauge.builder(ENTRIES, this, MemberSearchCache::size).register(registry);
+        Gauge.builder(BYTES, this, MemberSearchCache::bytes).baseUnit("bytes").register(registry);
+        Gauge.builder(HIT_RATIO, this, MemberSearchCache::hitRatio).register(registry);
+    }
+
+    public List<MemberTeamDto> get(MemberSearchCondition condition, Pageable pageable,
+                                   Supplier<List<MemberTeamDto>> search) {
+        if (!enabled || !SharedCacheSupport.isCacheableRead()) {
+            return search.get();
+        }
+        Key key = new Key(condition, pageable);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry.asList();
+        }
+        misses.increment();
+
+        long startGeneration = generation.get();
+        List<MemberTeamDto> rows = search.get();
+        Entry loaded = new Entry(key, rows.toArray(new MemberTeamDto[0]));
+        synchronized (this) {
+            //조회 도중 무효화됐다면 오래된 결과일 수 있으므로 담지 않는다.
+            if (generation.get() == startGeneration && loaded.bytes <= maxBytes) {
+                put(loaded);
+            }
+        }
+        return loaded.asList();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * 이벤트를 커밋까지 붙잡지 않도록 조건에 필요한 값만 꺼내서 무효화 조건으로 모은다.
+     */
+    @EventListener
+    public void onEntityWrite(EntityWriteEvent event) {
+        if (event.isFor(Member.class)) {
+            if (event.getType() == EntityWriteEvent.Type.UPDATE && !event.hasPreviousState()) {
+                invalidation.add(entry -> true);
+                return;
+            }
+            MemberValues state = event.hasState() ? MemberValues.of(event.stateOf("username"),
+                    event.stateOf("age"), event.stateOf("team")) : null;
+            MemberValues previous = event.hasPreviousState() ? MemberValues.of(event.previousStateOf("username"),
+                    event.previousStateOf("age"), event.previousStateOf("team")) : null;
+            invalidation.add(entry -> entry.key.matchesMember(state) || entry.key.matchesMember(previous));
+        } else if (event.isFor(Team.class) && event.getType() != EntityWriteEvent.Type.INSERT) {
+            Object teamId = event.getId();
+            Object name = event.stateOf("name");
+            Object previousName = event.previousStateOf("name");
+            boolean unknownPrevious = !event.hasPreviousState();
+            invalidation.add(entry -> entry.containsTeam(teamId)
+                    || entry.key.matchesTeamName(name)
+                    || entry.key.matchesTeamName(previousName)
+                    || unknownPrevious && entry.key.teamName != null);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (event.isFor(Member.class) || event.isFor(Team.class)) {
+            invalidateAll();
+        }
+    }
+
+    private void invalidateAny(Collection<Predicate<Entry>> affected) {
+        invalidate(entry -> affected.stream().anyMatch(predicate -> predicate.test(entry)));
+    }
+
+    private synchronized void invalidate(Predicate<Entry> affected) {
+        generation.incrementAndGet();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (affected.test(entry)) {
+                bytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private void put(Entry entry) {
+        Entry previous = entries.put(entry.key, entry);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += entry.bytes;
+        for (Iterator<Entry> it = entries.values().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            bytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * 정규화한 검색 조건. 검색 쿼리와 같이 빈 문자열은 조건이 없는 것으로 본다.
+     */
+    static class Key {
+
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+        private final long offset;
+        private final int size;
+        private final String sort;
+
+        Key(MemberSearchCondition condition, Pageable pageable) {
+            this.username = normalize(condition.getUsername());
+            this.teamName = normalize(condition.getTeamName());
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+            this.offset = pageable.isPaged() ? pageable.getOffset() : -1;
+            this.size = pageable.isPaged() ? pageable.getPageSize() : -1;
+            this.sort = pageable.getSort().toString();
+        }
+
+        /**
+         * 회원 속성 값이 이 조건에 해당할 수 있는지. values 가 없으면 false 이다.
+         * 팀 이름은 팀 엔티티가 로딩돼 있었을 때만 비교하고, 아니면 해당하는 것으로 본다.
+         */
+        boolean matchesMember(MemberValues values) {
+            if (values == null) {
+                return false;
+            }
+            if (username != null && !username.equals(values.username)) {
+                return false;
+            }
+            if (ageGoe != null && values.age instanceof Integer && (Integer) values.age < ageGoe) {
+                return false;
+            }
+            if (ageLoe != null && values.age instanceof Integer && (Integer) values.age > ageLoe) {
+                return false;
+            }
+            if (teamName != null) {
+                if (!values.hasTeam) {
+                    return false;
+                }
+                if (values.teamLoaded) {
+                    return teamName.equals(values.teamName);
+                }
+            }
+            return true;
+        }
+
+        boolean matchesTeamName(Object name) {
+            return teamName != null && teamName.equals(name);
+        }
+
+        private static String normalize(String value) {
+            return StringUtils.isEmpty(value) ? null : value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return offset == key.offset && size == key.size
+                    && Objects.equals(username, key.username) && Objects.equals(teamName, key.teamName)
+                    && Objects.equals(ageGoe, key.ageGoe) && Objects.equals(ageLoe, key.ageLoe)
+                    && sort.equals(key.sort);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, teamName, ageGoe, ageLoe, offset, size, sort);
+        }
+    }
+
+    /**
+     * 무효화 조건에 쓰는 회원 속성 값. 팀은 이벤트 시점에 로딩돼 있었을 때만 이름을 담는다.
+     */
+    static class MemberValues {
+
+        private final Object username;
+        private final Object age;
+        private final boolean hasTeam;
+        private final boolean teamLoaded;
+        private final String teamName;
+
+        private MemberValues(Object username, Object age, boolean hasTeam, boolean teamLoaded, String teamName) {
+            this.username = username;
+            this.age = age;
+            this.hasTeam = hasTeam;
+            this.teamLoaded = teamLoaded;
+            this.teamName = teamName;
+        }
+
+        static MemberValues of(Object username, Object age, Object team) {
+            boolean teamLoaded = team != null && Hibernate.isInitialized(team);
+            return new MemberValues(username, age, team != null, teamLoaded,
+                    teamLoaded ? ((Team) team).getName() : null);
+        }
+    }
+
+    private static class Entry {
+
+        //객체 헤더, 참조, Long/String 래퍼를 대략 더한 DTO 한 건의 크기
+        private static final int ROW_OVERHEAD = 16 + 5 * 4 + 2 * 16 + 2 * 40;
+
+        private final Key key;
+        private final MemberTeamDto[] rows;
+        private final long bytes;
+
+        Entry(Key key, MemberTeamDto[] rows) {
+            this.key = key;
+            this.rows = rows;
+            long estimate = 64 + 16 + 4L * rows.length;
+            for (MemberTeamDto row : rows) {
+                estimate += ROW_OVERHEAD + 2L * length(row.getUsername()) + 2L * length(row.getTeamName());
+            }
+            this.bytes = estimate;
+        }
+
+        boolean containsTeam(Object teamId) {
+            for (MemberTeamDto row : rows) {
+                if (Objects.equals(row.getTeamId(), teamId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<MemberTeamDto> asList() {
+            return Collections.unmodifiableList(Arrays.asList(rows));
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberTeamDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * MemberTeamDto 목록을 컬럼별 배열로 담는 결과 컨테이너.
+ * 회원 id/나이는 long[]/int[] 에, 팀은 (teamId, teamName) 사전의 코드(int[])로 담아서
+ * 행마다 DTO, Long, 팀 이름 참조를 만들지 않는다.
+ * get(i) 는 호출할 때마다 새 MemberTeamDto 를 만들어 돌려주므로 DTO 를 수정해도 컨테이너에는 반영되지 않는다.
+ * JSON 으로는 List&lt;MemberTeamDto&gt; 와 같은 모양으로 DTO 를 만들지 않고 바로 쓴다.
+ */
+@JsonSerialize(using = MemberTeamColumns.Serializer.class)
+public final class MemberTeamColumns extends AbstractList<MemberTeamDto> implements RandomAccess {
+
+    //팀이 없는 회원 (left join 결과 null)
+    private static final int NO_TEAM = -1;
+
+    private final int size;
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final long[] teamIds;
+    private final String[] teamNames;
+
+    private MemberTeamColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.usernames = Arrays.copyOf(builder.usernames, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.teamCodes = Arrays.copyOf(builder.teamCodes, size);
+        this.teamIds = Arrays.copyOf(builder.teamIds, builder.teams);
+        this.teamNames = Arrays.copyOf(builder.teamNames, builder.teams);
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public MemberTeamDto get(int index) {
+        checkIndex(index);
+        return new MemberTeamDto(memberIds[index], usernames[index], ages[index], teamId(index), teamName(index));
+    }
+
+    public long memberId(int index) {
+        checkIndex(index);
+        return memberIds[index];
+    }
+
+    public String username(int index) {
+        checkIndex(index);
+        return usernames[index];
+    }
+
+    public int age(int index) {
+        checkIndex(index);
+        return ages[index];
+    }
+
+    public Long teamId(int index) {
+        checkIndex(index);
+        int code = teamCodes[index];
+        return code == NO_TEAM ? null : teamIds[code];
+    }
+
+    public String teamName(int index) {
+        checkIndex(index);
+        int code = teamCodes[index];
+        return code == NO_TEAM ? null : teamNames[code];
+    }
+
+    /**
+     * 배열이 차지하는 대략의 바이트 수. (username 문자열은 길이만큼 더한다)
+     */
+    public long estimatedBytes() {
+        long bytes = 16 + 6 * 16 + size * (8L + 4 + 4 + 4) + teamIds.length * (8L + 4);
+        for (int i = 0; i < size; i++) {
+            bytes += 40 + 2L * (usernames[i] == null ? 0 : usernames[i].length());
+        }
+        for (String teamName : teamNames) {
+            bytes += 40 + 2L * (teamName == null ? 0 : teamName.length());
+        }
+        return bytes;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * 조회 결과 행을 하나씩 추가한다. 배열은 부족할 때 두 배로 늘리고 build 할 때 크기에 맞게 자른다.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] memberIds;
+        private String[] usernames;
+        private int[] ages;
+        private int[] teamCodes;
+
+        private int teams;
+        private long[] teamIds = new long[4];
+        private String[] teamNames = new String[4];
+        private final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+        private Builder(int expectedRows) {
+            int capacity = Math.max(expectedRows, 1);
+            this.memberIds = new long[capacity];
+            this.usernames = new String[capacity];
+            this.ages = new int[capacity];
+            this.teamCodes = new int[capacity];
+        }
+
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            usernames[size] = username;
+            ages[size] = age;
+            teamCodes[size] = teamId == null ? NO_TEAM : teamCode(teamId, teamName);
+            size++;
+            return this;
+        }
+
+        public Builder add(MemberTeamDto row) {
+            return add(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName());
+        }
+
+        public MemberTeamColumns build() {
+            return new MemberTeamColumns(this);
+        }
+
+        private int teamCode(Long teamId, String teamName) {
+            Integer code = teamCodeById.get(teamId);
+            if (code != null) {
+                return code;
+            }
+            if (teams == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, teams * 2);
+                teamNames = Arrays.copyOf(teamNames, teams * 2);
+            }
+            teamIds[teams] = teamId;
+            teamNames[teams] = teamName;
+            teamCodeById.put(teamId, teams);
+            return teams++;
+        }
+    }
+
+    static class Serializer extends StdSerializer<MemberTeamColumns> {
+
+        Serializer() {
+            super(MemberTeamColumns.class);
+        }
+
+        @Override
+        public void serialize(MemberTeamColumns columns, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < columns.size; i++) {
+                int code = columns.teamCodes[i];
+                gen.writeStartObject();
+                gen.writeNumberField("memberId", columns.memberIds[i]);
+                gen.writeStringField("username", columns.usernames[i]);
+                gen.writeNumberField("age", columns.ages[i]);
+                if (code == NO_TEAM) {
+                    gen.writeNullField("teamId");
+                    gen.writeNullField("teamName");
+                } else {
+                    gen.writeNumberField("teamId", columns.teamIds[code]);
+                    gen.writeStringField("teamName", columns.teamNames[code]);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
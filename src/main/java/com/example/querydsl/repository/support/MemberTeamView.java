@@ -0,0 +1,422 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.dto.QMemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색 결과(MemberTeamDto)의 메모리 읽기 모델. member - team 조인 결과를 회원 id 순서로 들고 있고
+ * 회원명/팀 인덱스로 검색해서 조인 없이 돌려준다.
+ * 시작할 때 한 번 읽은 뒤로는 {@link ChangeStream} 으로 커밋된 회원/팀 변경을 받아 해당 행만 고친다.
+ * 벌크 연산, 큐 넘침, 모르는 팀을 만나면 전체를 다시 읽는다.
+ * <p>
+ * 변경은 커밋 이후 구독 스레드에서 반영되므로 커밋 직후 잠깐은 이전 값이 보일 수 있다.
+ * querydsl.member-team-view.enabled 이면 회원 검색이 조인 대신 이 뷰를 사용하고,
+ * 쓰기 가능한 트랜잭션 안에서는 커밋되지 않은 변경을 봐야 하므로 계속 조인 쿼리를 사용한다.
+ */
+@Slf4j
+@Component
+public class MemberTeamView implements ChangeSubscriber {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+
+    //아래 필드는 lock 으로 보호한다.
+    private TreeMap<Long, Row> rows = new TreeMap<>();
+    private Map<String, Set<Long>> byUsername = new HashMap<>();
+    private Map<Long, Set<Long>> byTeam = new HashMap<>();
+    private Map<Long, String> teamNames = new HashMap<>();
+    private boolean loaded;
+    //다시 읽는 동안 도착한 변경. 읽기가 끝나면 이어서 반영한다.
+    private List<ChangeEvent> pending;
+
+    public MemberTeamView(EntityManager em, PlatformTransactionManager transactionManager,
+                          @Value("${querydsl.member-team-view.enabled:false}") boolean enabled) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    //꺼져 있으면 ChangeStream 에 구독하지 않는다.
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 회원 검색이 이 뷰를 써도 되는지. 켜져 있고, 다 읽었고, 쓰기 가능한 트랜잭션 밖이어야 한다.
+     */
+    public boolean isReadable() {
+        if (!enabled || !SharedCacheSupport.isCacheableRead()) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            rebuild();
+            log.info("member team view loaded ({} rows)", size());
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 검색 조건은 search 쿼리와 같다. (빈 문자열은 조건 없음) 결과는 회원 id 순서다.
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return search(condition, 0, Integer.MAX_VALUE);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long offset, int limit) {
+        List<MemberTeamDto> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long skipped = 0;
+            for (Row row : candidates(condition)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (row.matches(condition, teamNames) && skipped++ >= offset) {
+                    result.add(row.toDto(teamNames));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Row row : candidates(condition)) {
+                if (row.matches(condition, teamNames)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean accepts(Class<?> entityType) {
+        return enabled && (entityType == Member.class || entityType == Team.class);
+    }
+
+    @Override
+    public void onChanges(ChangeBatch batch) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(batch.getEvents());
+                return;
+            }
+            if (!loaded) {
+                return;
+            }
+            //반영하지 못한 변경 이후의 변경은 다시 읽을 때 함께 읽힌다.
+            if (batch.getEvents().stream().allMatch(this::apply)) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild();
+    }
+
+    @Override
+    public void onOverflow(long lastLostSequence) {
+        rebuild();
+    }
+
+    /**
+     * DB 에서 전체를 다시 읽는다. 읽는 동안에는 이전 내용으로 검색하고, 도착한 변경은 읽기가 끝난 뒤 반영한다.
+     */
+    public void rebuild() {
+        synchronized (rebuildMonitor) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                while (true) {
+                    Snapshot snapshot = transactionTemplate.execute(status -> load());
+                    lock.writeLock().lock();
+                    try {
+                        List<ChangeEvent> replay = pending;
+                        pending = new ArrayList<>();
+                        install(snapshot);
+                        if (replay.stream().allMatch(this::apply)) {
+                            loaded = true;
+                            return;
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 뷰와 조인 쿼리 결과를 회원 id 별로 비교한다. 비교하는 동안 커밋된 변경은 차이로 보일 수 있다.
+     */
+    public Consistency check() {
+        List<MemberTeamDto> joined = transactionTemplate.execute(status -> queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch());
+        Map<Long, MemberTeamDto> expected = new HashMap<>();
+        for (MemberTeamDto dto : joined) {
+            expected.put(dto.getMemberId(), dto);
+        }
+
+        Consistency consistency = new Consistency();
+        lock.readLock().lock();
+        try {
+            for (Row row : rows.values()) {
+                MemberTeamDto dto = expected.remove(row.id);
+                if (dto == null) {
+                    consistency.unexpected.add(row.id);
+                } else if (!dto.equals(row.toDto(teamNames))) {
+                    consistency.different.add(row.id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        consistency.missing.addAll(expected.keySet());
+        return consistency;
+    }
+
+    //검색 조건에 맞을 수 있는 행. 회원명 > 팀 이름 인덱스 순으로 고르고 없으면 전체다.
+    private Collection<Row> candidates(MemberSearchCondition condition) {
+        if (!StringUtils.isEmpty(condition.getUsername())) {
+            return rowsOf(byUsername.getOrDefault(condition.getUsername(), Collections.emptySet()));
+        }
+        if (!StringUtils.isEmpty(condition.getTeamName())) {
+            TreeSet<Long> ids = new TreeSet<>();
+            teamNames.forEach((teamId, name) -> {
+                if (condition.getTeamName().equals(name)) {
+                    ids.addAll(byTeam.getOrDefault(teamId, Collections.emptySet()));
+                }
+            });
+            return rowsOf(ids);
+        }
+        return rows.values();
+    }
+
+    private List<Row> rowsOf(Set<Long> ids) {
+        List<Row> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(rows.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return 반영하지 못해서 다시 읽어야 하면 false
+     */
+    private boolean apply(ChangeEvent event) {
+        if (event.getType() == ChangeEvent.Type.BULK) {
+            return !(event.isFor(Member.class) || event.isFor(Team.class)) || event.getAffectedRows() == 0;
+        }
+        if (event.isFor(Team.class)) {
+            if (event.getType() == ChangeEvent.Type.DELETE) {
+                teamNames.remove(event.getId());
+                //아직 이 팀을 가리키는 행이 남아 있으면 팀 이름이 빈 채로 보이므로 다시 읽는다.
+                return byTeam.getOrDefault(event.getId(), Collections.emptySet()).isEmpty();
+            } else {
+                teamNames.put((Long) event.getId(), (String) event.getState().get("name"));
+            }
+            return true;
+        }
+        if (!event.isFor(Member.class)) {
+            return true;
+        }
+        Long id = (Long) event.getId();
+        remove(id);
+        if (event.getType() == ChangeEvent.Type.DELETE) {
+            return true;
+        }
+        Map<String, Object> state = event.getState();
+        Long teamId = teamIdOf(state.get("team"));
+        if (teamId != null && !teamNames.containsKey(teamId)) {
+            return false;
+        }
+        add(new Row(id, (String) state.get("username"), (Integer) state.get("age"), teamId));
+        return true;
+    }
+
+    private void add(Row row) {
+        rows.put(row.id, row);
+        byUsername.computeIfAbsent(row.username, key -> new TreeSet<>()).add(row.id);
+        byTeam.computeIfAbsent(row.teamId, key -> new TreeSet<>()).add(row.id);
+    }
+
+    private void remove(Long id) {
+        Row previous = rows.remove(id);
+        if (previous != null) {
+            byUsername.get(previous.username).remove(id);
+            byTeam.get(previous.teamId).remove(id);
+        }
+    }
+
+    private void install(Snapshot snapshot) {
+        rows = new TreeMap<>();
+        byUsername = new HashMap<>();
+        byTeam = new HashMap<>();
+        teamNames = snapshot.teamNames;
+        snapshot.rows.forEach(this::add);
+    }
+
+    private Snapshot load() {
+        Snapshot snapshot = new Snapshot();
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            snapshot.teamNames.put(row.get(team.id), row.get(team.name));
+        }
+        for (Tuple row : QueryProfile.EXPORT.apply(queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member))
+                .fetch()) {
+            snapshot.rows.add(new Row(row.get(member.id), row.get(member.username), row.get(member.age),
+                    row.get(member.team.id)));
+        }
+        return snapshot;
+    }
+
+    //지연 로딩 프록시는 초기화하지 않고 id 만 꺼낸다. (구독 스레드에는 세션이 없다)
+    private static Long teamIdOf(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    /**
+     * check 결과. 회원 id 목록이다.
+     */
+    @Getter
+    @ToString
+    public static class Consistency {
+
+        //조인에는 있고 뷰에는 없는 회원
+        private final Set<Long> missing = new TreeSet<>();
+        //뷰에만 있는 회원
+        private final Set<Long> unexpected = new TreeSet<>();
+        //값이 다른 회원
+        private final Set<Long> different = new TreeSet<>();
+
+        public boolean isConsistent() {
+            return missing.isEmpty() && unexpected.isEmpty() && different.isEmpty();
+        }
+    }
+
+    private static class Snapshot {
+
+        private final Map<Long, String> teamNames = new HashMap<>();
+        private final List<Row> rows = new ArrayList<>();
+    }
+
+    /**
+     * 뷰의 한 행. 팀 이름 변경이 한 번에 반영되도록 팀 이름 대신 팀 id 를 둔다.
+     */
+    private static class Row {
+
+        private final long id;
+        private final String username;
+        private final int age;
+        private final Long teamId;
+
+        Row(long id, String username, int age, Long teamId) {
+            this.id = id;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+
+        boolean matches(MemberSearchCondition condition, Map<Long, String> teamNames) {
+            return (StringUtils.isEmpty(condition.getUsername()) || condition.getUsername().equals(username))
+                    && (StringUtils.isEmpty(condition.getTeamName())
+                        || teamId != null && condition.getTeamName().equals(teamNames.get(teamId)))
+                    && (condition.getAgeGoe() == null || age >= condition.getAgeGoe())
+                    && (condition.getAgeLoe() == null || age <= condition.getAgeLoe());
+        }
+
+        MemberTeamDto toDto(Map<Long, String> teamNames) {
+            return new MemberTeamDto(id, username, age, teamId, teamId == null ? null : teamNames.get(teamId));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 번 JPQL 로 직렬화해 둔 Querydsl 쿼리.
+ * 값이 바뀌는 부분은 {@link com.querydsl.core.types.dsl.Param} 으로 만들어 두고, 실행할 때는 파라미터만 바인딩한다.
+ * 표현식 트리 생성과 직렬화를 건너뛰고, 같은 JPQL 문자열이므로 Hibernate 의 query plan cache 도 그대로 적중한다.
+ */
+public class PrecompiledJpql<T> {
+
+    private final String jpql;
+    private final Map<Object, String> constantToLabel;
+    private final FactoryExpression<T> projection;
+
+    @SuppressWarnings("unchecked")
+    public PrecompiledJpql(EntityManager em, JPAQuery<T> query) {
+        QueryMetadata metadata = query.getMetadata();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(metadata, false, null);
+        this.jpql = serializer.toString();
+        this.constantToLabel = Collections.unmodifiableMap(serializer.getConstantToLabel());
+        Expression<?> select = metadata.getProjection();
+        this.projection = select instanceof FactoryExpression ? (FactoryExpression<T>) select : null;
+    }
+
+    public String getJpql() {
+        return jpql;
+    }
+
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params) {
+        return fetch(em, params, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params, QueryProfile profile) {
+        Query query = em.createQuery(jpql);
+        if (profile != null) {
+            profile.apply(query);
+        }
+        JPAUtil.setConstants(query, constantToLabel, params);
+        List<?> rows = query.getResultList();
+        if (projection == null) {
+            return (List<T>) rows;
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[]{row}));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 쿼리 형태(shape)별 실행 시간 히스토그램, 결과 행 수, 읽은 행 누계를 Micrometer 로 기록한다.
+ * shape 는 "member.search[username,teamName]" 처럼 조건 조합까지만 구분해서 태그 수가 늘어나지 않게 한다.
+ * 미터는 shape 별로 한 번만 만들어 두므로 호출마다 드는 비용은 맵 조회와 시간 측정 정도이다.
+ */
+@Component
+public class QueryMetrics {
+
+    public static final String QUERY_TIMER = "querydsl.query";
+    public static final String QUERY_ROWS = "querydsl.query.rows";
+    public static final String QUERY_ROWS_READ = "querydsl.query.rows.read";
+
+    private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+    private final ConcurrentMap<String, ShapeMeters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry,
+                        @Value("${querydsl.metrics.percentile-histogram:true}") boolean percentileHistogram) {
+        this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    public <T> List<T> fetch(String shape, Supplier<List<T>> query) {
+        try (Recording recording = start(shape)) {
+            List<T> rows = query.get();
+            recording.stop(rows.size());
+            return rows;
+        }
+    }
+
+    public long count(String shape, LongSupplier countQuery) {
+        try (Recording recording = start(shape)) {
+            long count = countQuery.getAsLong();
+            recording.stop(1);
+            return count;
+        }
+    }
+
+    /**
+     * 스트리밍 조회처럼 결과 행 수를 나중에 알 수 있는 경우 직접 시작/종료한다.
+     * stop 하지 않고 close 하면 실패(outcome=error)로 기록한다. 예외가 나도 기록되도록 try-with-resources 로 사용한다.
+     */
+    public Recording start(String shape) {
+        return new Recording(meters.computeIfAbsent(shape, this::register), System.nanoTime());
+    }
+
+    public Collection<ShapeMeters> shapes() {
+        return meters.values();
+    }
+
+    /**
+     * 쿼리 형태 이름. 사용된 조건 이름만 붙인다. (예: member.search[teamName,ageGoe])
+     */
+    public static String shape(String name, String... presentPredicates) {
+        StringBuilder shape = new StringBuilder(name).append('[');
+        boolean first = true;
+        for (String predicate : presentPredicates) {
+            if (predicate == null) {
+                continue;
+            }
+            if (!first) {
+                shape.append(',');
+            }
+            shape.append(predicate);
+            first = false;
+        }
+        return shape.append(']').toString();
+    }
+
+    private ShapeMeters register(String shape) {
+        Timer timer = Timer.builder(QUERY_TIMER)
+                .tag("shape", shape)
+                .tag("outcome", "success")
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+        Timer errors = Timer.builder(QUERY_TIMER)
+                .tag("shape", shape)
+                .tag("outcome", "error")
+                .publishPercentileHistogram(percentileHistogram)
+                .register(registry);
+        DistributionSummary rows = DistributionSummary.builder(QUERY_ROWS)
+                .tag("shape", shape)
+                .baseUnit("rows")
+                .register(registry);
+        Counter rowsRead = Counter.builder(QUERY_ROWS_READ)
+                .tag("shape", shape)
+                .baseUnit("rows")
+                .register(registry);
+        return new ShapeMeters(shape, timer, errors, rows, rowsRead);
+    }
+
+    @Getter
+    public static class ShapeMeters {
+        private final String shape;
+        private final Timer timer;
+        //예외로 끝난 실행 (타임아웃 등)
+        private final Timer errors;
+        private final DistributionSummary rows;
+        private final Counter rowsRead;
+
+        ShapeMeters(String shape, Timer timer, Timer errors, DistributionSummary rows, Counter rowsRead) {
+            this.shape = shape;
+            this.timer = timer;
+            this.errors = errors;
+            this.rows = rows;
+            this.rowsRead = rowsRead;
+        }
+
+        /**
+         * 쿼리 실행 중의 처리량. (읽은 행 누계 / 실행 시간 누계)
+         */
+        public double rowsPerSecond() {
+            double seconds = timer.totalTime(TimeUnit.SECONDS);
+            return seconds == 0 ? 0 : rowsRead.count() / seconds;
+        }
+    }
+
+    public static class Recording implements AutoCloseable {
+        private final ShapeMeters meters;
+        private final long startNanos;
+        private boolean stopped;
+
+        Recording(ShapeMeters meters, long startNanos) {
+            this.meters = meters;
+            this.startNanos = startNanos;
+        }
+
+        public void stop(long rows) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            meters.timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            meters.rows.record(rows);
+            meters.rowsRead.increment(rows);
+        }
+
+        @Override
+        public void close() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            meters.errors.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
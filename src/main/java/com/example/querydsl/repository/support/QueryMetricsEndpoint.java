@@ -0,0 +1,43 @@
+package com.example.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /actuator/querymetrics - {@link QueryMetrics} 의 쿼리 형태별 요약.
+ * 히스토그램 버킷은 /actuator/metrics/querydsl.query 나 모니터링 시스템에서 본다.
+ */
+@Component
+@Endpoint(id = "querymetrics")
+@RequiredArgsConstructor
+public class QueryMetricsEndpoint {
+
+    private final QueryMetrics queryMetrics;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> shapes() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (QueryMetrics.ShapeMeters meters : queryMetrics.shapes()) {
+            Timer timer = meters.getTimer();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", timer.count());
+            summary.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+            summary.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+            summary.put("errors", meters.getErrors().count());
+            summary.put("errorMaxMs", meters.getErrors().max(TimeUnit.MILLISECONDS));
+            summary.put("totalRows", (long) meters.getRowsRead().count());
+            summary.put("meanRows", meters.getRows().mean());
+            summary.put("rowsPerSecond", meters.rowsPerSecond());
+            result.put(meters.getShape(), summary);
+        }
+        return result;
+    }
+}
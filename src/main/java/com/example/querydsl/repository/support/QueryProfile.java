@@ -0,0 +1,164 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.util.Assert;
+
+import javax.persistence.Query;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 쿼리에 함께 적용할 JDBC fetch size, 타임아웃, 읽기 전용, 쿼리 캐시 힌트 묶음.
+ * 적용한 쿼리에는 "profile=이름" SQL 주석 힌트도 붙는다. (hibernate.use_sql_comments 일 때 SQL 에 보인다)
+ * <ul>
+ *     <li>export: 큰 결과를 커서로 읽는 내보내기/리포트. fetch size 를 크게 잡아 드라이버 왕복을 줄인다</li>
+ *     <li>interactive: 화면 요청. 한 페이지 정도를 읽고 오래 걸리면 빨리 실패한다</li>
+ *     <li>count: 페이징 카운트 쿼리</li>
+ * </ul>
+ * 예) QueryProfile.EXPORT.apply(queryFactory.selectFrom(member)).iterate()
+ */
+public final class QueryProfile {
+
+    public static final QueryProfile EXPORT = builder("export")
+            .fetchSize(1000)
+            .timeout(Duration.ofMinutes(10))
+            .readOnly(true)
+            .build();
+    public static final QueryProfile INTERACTIVE = builder("interactive")
+            .fetchSize(100)
+            .timeout(Duration.ofSeconds(5))
+            .build();
+    public static final QueryProfile COUNT = builder("count")
+            .timeout(Duration.ofSeconds(10))
+            .build();
+
+    private static final Map<String, QueryProfile> NAMED;
+
+    static {
+        Map<String, QueryProfile> named = new LinkedHashMap<>();
+        for (QueryProfile profile : new QueryProfile[]{EXPORT, INTERACTIVE, COUNT}) {
+            named.put(profile.name, profile);
+        }
+        NAMED = Collections.unmodifiableMap(named);
+    }
+
+    private final String name;
+    private final Integer fetchSize;
+    private final Duration timeout;
+    private final boolean readOnly;
+    private final boolean cacheable;
+
+    private QueryProfile(Builder builder) {
+        this.name = builder.name;
+        this.fetchSize = builder.fetchSize;
+        this.timeout = builder.timeout;
+        this.readOnly = builder.readOnly;
+        this.cacheable = builder.cacheable;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public static QueryProfile named(String name) {
+        QueryProfile profile = NAMED.get(name);
+        Assert.notNull(profile, () -> "Unknown query profile: " + name + " (available: " + NAMED.keySet() + ")");
+        return profile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 설정하지 않았으면 null (드라이버 기본값)
+     */
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public <Q extends JPAQuery<?>> Q apply(Q query) {
+        if (fetchSize != null) {
+            query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        }
+        if (timeout != null) {
+            query.setHint(QueryHints.SPEC_HINT_TIMEOUT, (int) timeout.toMillis());
+        }
+        if (readOnly) {
+            ReadOnlyQuerySupport.readOnly(query);
+        }
+        if (cacheable) {
+            query.setHint(QueryHints.HINT_CACHEABLE, true);
+        }
+        query.setHint(QueryHints.HINT_COMMENT, "profile=" + name);
+        return query;
+    }
+
+    /**
+     * Querydsl 을 거치지 않고 만든 JPA 쿼리용. ({@link PrecompiledJpql})
+     */
+    public Query apply(Query query) {
+        if (fetchSize != null) {
+            query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        }
+        if (timeout != null) {
+            query.setHint(QueryHints.SPEC_HINT_TIMEOUT, (int) timeout.toMillis());
+        }
+        if (readOnly) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+        }
+        if (cacheable) {
+            query.setHint(QueryHints.HINT_CACHEABLE, true);
+        }
+        query.setHint(QueryHints.HINT_COMMENT, "profile=" + name);
+        return query;
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private Integer fetchSize;
+        private Duration timeout;
+        private boolean readOnly;
+        private boolean cacheable;
+
+        private Builder(String name) {
+            Assert.hasText(name, "Profile name must not be empty!");
+            this.name = name;
+        }
+
+        public Builder fetchSize(int fetchSize) {
+            Assert.isTrue(fetchSize > 0, "Fetch size must be positive!");
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * 조회한 엔티티의 스냅샷을 만들지 않는다. 결과 엔티티를 수정하지 않는 쿼리에만 사용한다.
+         */
+        public Builder readOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+            return this;
+        }
+
+        /**
+         * Hibernate 쿼리 캐시를 사용한다. (l2cache 프로파일)
+         */
+        public Builder cacheable(boolean cacheable) {
+            this.cacheable = cacheable;
+            return this;
+        }
+
+        public QueryProfile build() {
+            return new QueryProfile(this);
+        }
+    }
+}
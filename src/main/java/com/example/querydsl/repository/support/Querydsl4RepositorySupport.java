@@ -1,11 +1,14 @@
 package com.example.querydsl.repository.support;
 
+import com.querydsl.core.types.CollectionExpression;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
@@ -17,6 +20,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 
@@ -29,13 +33,17 @@ import java.util.function.Function;
 @Repository
 public abstract class Querydsl4RepositorySupport {
     private final Class domainClass;
+    private final boolean readOnly;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private CountCache countCache;
+    private QueryMetrics queryMetrics;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
+        this.readOnly = AnnotatedElementUtils.hasAnnotation(getClass(), ReadOnlyQueries.class);
     }
 
     @Autowired
@@ -51,11 +59,23 @@ public abstract class Querydsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired
+    public void setCountCache(CountCache countCache) {
+        this.countCache = countCache;
+    }
+
+    @Autowired
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(countCache, "CountCache must not be null!");
+        Assert.notNull(queryMetrics, "QueryMetrics must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -70,28 +90,124 @@ public abstract class Querydsl4RepositorySupport {
         return entityManager;
     }
 
+    protected QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
     protected <T> JPAQuery<T> select(Expression<T> expr) {
-        return getQueryFactory().select(expr);
+        return applyReadOnly(getQueryFactory().select(expr));
     }
 
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
-        return getQueryFactory().selectFrom(from);
+        return applyReadOnly(getQueryFactory().selectFrom(from));
+    }
+
+    /**
+     * 메서드 단위로 읽기 전용 쿼리를 만들 때 사용한다. 예) readOnly(selectFrom(member)).fetch()
+     */
+    protected <Q extends JPAQuery<?>> Q readOnly(Q query) {
+        return ReadOnlyQuerySupport.readOnly(query);
+    }
+
+    /**
+     * 영속성 컨텍스트 없이(StatelessSession) 조회한다. 대량 조회 결과를 수정하지 않을 때 사용한다.
+     */
+    protected <T> List<T> fetchStateless(JPAQuery<T> query) {
+        return ReadOnlyQuerySupport.fetchStateless(getEntityManager(), query);
+    }
+
+    /**
+     * 함께 사용할 연관관계를 선언하면 N+1 이 생기지 않도록 로딩 방식을 정해서 적용한다.
+     * 단일 연관(@ManyToOne 등)은 fetch join 하고, 컬렉션은 페이징이 깨지지 않도록 조인하지 않고
+     * 엔티티의 @BatchSize 로 한 번에 초기화되게 둔다. (컬렉션을 넘기면 쿼리는 바뀌지 않는다)
+     * 연관이 아닌 경로(값 필드 등)는 IllegalArgumentException 을 던진다.
+     * 예) selectFrom(member, member.team)
+     */
+    protected <T> JPAQuery<T> selectFrom(EntityPath<T> from, Path<?>... associations) {
+        JPAQuery<T> query = selectFrom(from);
+        for (Path<?> association : associations) {
+            if (association instanceof EntityPath) {
+                query.leftJoin((EntityPath<?>) association).fetchJoin();
+            } else if (!(association instanceof CollectionExpression)) {
+                throw new IllegalArgumentException("Not an association: " + association);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 엔티티 대신 DTO 필드에 필요한 컬럼만 조회한다. 필요한 연관은 연관 이름을 별칭으로 left join 한다.
+     * 조건에만 쓰이는 연관은 associations 로 넘긴다.
+     * 예) selectDto(MemberDto.class, member, member.team).where(team.name.eq("teamA"))
+     * @see DtoProjection
+     */
+    protected <D> JPAQuery<D> selectDto(Class<D> dtoClass, EntityPath<?> from, EntityPath<?>... associations) {
+        return DtoProjection.of(getEntityManager(), dtoClass, from).select(getQueryFactory(), associations);
+    }
+
+    /**
+     * 이름으로 등록된 쿼리 프로파일(export, interactive, count)을 적용한다. 예) withProfile("export", selectFrom(member))
+     * @see QueryProfile
+     */
+    protected <Q extends JPAQuery<?>> Q withProfile(String profile, Q query) {
+        return QueryProfile.named(profile).apply(query);
+    }
+
+    /**
+     * 컨텐츠 쿼리에서 정렬, 쓰이지 않는 단일 연관 조인, fetch join 을 뺀 카운트 쿼리를 만든다.
+     * @see CountQueryOptimizer
+     */
+    protected JPAQuery<?> countQuery(JPAQuery<?> contentQuery) {
+        return CountQueryOptimizer.optimize(getEntityManager(), contentQuery);
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+        return applyPagination(pageable, contentQuery, false);
+    }
 
-        return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+    /**
+     * exactCount 가 false 면 카운트는 {@link CountCache} 의 (백그라운드 갱신되는) 값을 사용한다.
+     * 카운트 쿼리는 컨텐츠 쿼리에서 {@link #countQuery} 로 만든다.
+     * 컨텐츠 쿼리에는 interactive, 카운트 쿼리에는 count 프로파일을 적용한다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery, boolean exactCount) {
+        JPAQuery jpaQuery = QueryProfile.INTERACTIVE.apply(applyReadOnly(contentQuery.apply(getQueryFactory())));
+        JPAQuery<?> countResult = QueryProfile.COUNT.apply(countQuery(jpaQuery));
+        List<T> content = queryMetrics.fetch(shape("page"), getQuerydsl().applyPagination(pageable, jpaQuery)::fetch);
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> cachedCount(countResult, exactCount));
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
+        return applyPagination(pageable, contentQuery, countQuery, false);
+    }
+
+    protected <T> Page<T> applyPagination(Pageable pageable,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+            JPAQuery> countQuery, boolean exactCount) {
+        JPAQuery jpaContentQuery = QueryProfile.INTERACTIVE.apply(applyReadOnly(contentQuery.apply(getQueryFactory())));
+        List<T> content = queryMetrics.fetch(shape("page"),
+                getQuerydsl().applyPagination(pageable, jpaContentQuery)::fetch);
+        JPAQuery countResult = QueryProfile.COUNT.apply(countQuery.apply(getQueryFactory()));
+        return PageableExecutionUtils.getPage(content, pageable, () -> cachedCount(countResult, exactCount));
+    }
+
+    //@ReadOnlyQueries 가 붙은 리포지토리면 읽기 전용으로 실행한다.
+    private <Q extends JPAQuery<?>> Q applyReadOnly(Q query) {
+        return readOnly ? ReadOnlyQuerySupport.readOnly(query) : query;
+    }
+
+    private long cachedCount(JPAQuery<?> countQuery, boolean exactCount) {
+        return countCache.count(Arrays.asList(domainClass, CountCache.keyOf(countQuery)),
+                () -> queryMetrics.count(shape("count"), countQuery::fetchCount), exactCount);
+    }
+
+    //리포지토리 클래스 단위로만 구분한다. (예: MemberTestRepository.page)
+    private String shape(String operation) {
+        return getClass().getSimpleName() + "." + operation;
     }
 }
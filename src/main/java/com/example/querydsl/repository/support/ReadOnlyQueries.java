@@ -0,0 +1,20 @@
+package com.example.querydsl.repository.support;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link Querydsl4RepositorySupport} 하위 클래스에 붙이면 select/selectFrom/applyPagination 으로 만든
+ * 모든 쿼리를 읽기 전용으로 실행한다. 조회한 엔티티를 수정해도 반영되지 않는다.
+ * 메서드 단위로 적용하려면 {@link ReadOnlyQuerySupport#readOnly} 를 사용한다.
+ */
+@Documented
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyQueries {
+}
@@ -0,0 +1,60 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.StatelessSessionHolder;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 조회 결과를 영속성 컨텍스트에서 추적하지 않도록 하는 공통 로직.
+ */
+public final class ReadOnlyQuerySupport {
+
+    private ReadOnlyQuerySupport() {
+    }
+
+    /**
+     * 조회한 엔티티를 읽기 전용으로 로딩해서 스냅샷을 만들지 않고 flush 때 변경 감지에서 제외한다.
+     * 쓰기 트랜잭션 안에서는 자동 flush 를 생략하면 아직 반영하지 않은 변경을 못 보므로
+     * flush 모드(MANUAL)는 트랜잭션이 없거나 읽기 전용일 때만 적용한다.
+     */
+    public static <Q extends JPAQuery<?>> Q readOnly(Q query) {
+        query.setHint(QueryHints.READ_ONLY, true);
+        if (!isReadWriteTransactionActive()) {
+            query.setHint(QueryHints.FLUSH_MODE, FlushMode.MANUAL);
+        }
+        return query;
+    }
+
+    private static boolean isReadWriteTransactionActive() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * 영속성 컨텍스트가 없는 StatelessSession 으로 실행한다. 1차 캐시, 스냅샷, 2차 캐시를 모두 거치지 않는다.
+     * 조회한 엔티티의 지연 로딩 연관은 초기화할 수 없으므로 필요한 연관은 fetch join 해야 한다.
+     * 트랜잭션 안이면 그 트랜잭션의 커넥션을 그대로 사용한다.
+     */
+    public static <T> List<T> fetchStateless(EntityManager em, JPAQuery<T> query) {
+        SessionFactory sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+        StatelessSession session = TransactionSynchronizationManager.isActualTransactionActive()
+                ? sessionFactory.openStatelessSession(em.unwrap(SessionImplementor.class).connection())
+                : sessionFactory.openStatelessSession();
+        try {
+            return new HibernateQuery<T>(new StatelessSessionHolder(session), HQLTemplates.DEFAULT,
+                    query.getMetadata().clone()).fetch();
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.querydsl.repository.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * querydsl.datasource.replicas 가 설정되면 primary + 레플리카 라우팅 DataSource 를 등록한다.
+ * primary 와 레플리카 풀은 모두 Hikari 이고 spring.datasource.hikari.* 설정을 그대로 따른다.
+ * <pre>
+ * querydsl:
+ *   datasource:
+ *     selection: least_latency
+ *     max-lag: 5s
+ *     replicas:
+ *       - url: jdbc:h2:tcp://replica/~/querydsl
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.datasource", name = "replicas[0].url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfiguration {
+
+    static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties replicaProperties,
+                                                             Environment environment) {
+        //자동 설정 DataSource 를 대신하므로 spring.datasource.hikari.* (풀 크기, 타임아웃 등)도 직접 바인딩한다.
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(binder, dataSourceProperties.initializeDataSourceBuilder());
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaProperties.Replica> configured = replicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaProperties.Replica replica = configured.get(i);
+            HikariDataSource pool = pool(binder, DataSourceBuilder.create()
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null
+                            ? replica.getUsername() : dataSourceProperties.determineUsername())
+                    .password(replica.getPassword() != null
+                            ? replica.getPassword() : dataSourceProperties.determinePassword()));
+            //레플리카는 같은 설정을 공유하므로 풀 이름으로 메트릭/로그를 구분한다.
+            pool.setPoolName("replica-" + i);
+            replicas.put("replica-" + i, pool);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                replicaProperties.getSelection(), replicaProperties.getMaxLag(), replicaProperties.getLagQuery());
+        routing.startProbing(replicaProperties.getProbeInterval());
+        return routing;
+    }
+
+    private static HikariDataSource pool(Binder binder, DataSourceBuilder<?> builder) {
+        HikariDataSource dataSource = builder.type(HikariDataSource.class).build();
+        binder.bind(HIKARI_PREFIX, Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
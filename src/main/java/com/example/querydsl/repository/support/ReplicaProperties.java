@@ -0,0 +1,33 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 레플리카 설정. replicas 가 하나라도 있으면 {@link ReplicaDataSourceConfiguration} 이 활성화된다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("querydsl.datasource")
+public class ReplicaProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+    private ReplicaRoutingDataSource.Selection selection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+    private Duration maxLag = Duration.ofSeconds(5);
+    private Duration probeInterval = Duration.ofSeconds(5);
+    private String lagQuery;
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        //비어 있으면 spring.datasource 값을 그대로 쓴다.
+        private String username;
+        private String password;
+    }
+}
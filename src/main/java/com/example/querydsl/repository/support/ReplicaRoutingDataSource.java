@@ -0,0 +1,189 @@
+package com.example.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 레플리카로, 나머지는 primary 로 보낸다.
+ * 트랜잭션 속성이 정해진 뒤에 커넥션을 얻어야 하므로 LazyConnectionDataSourceProxy 로 감싸서 사용한다.
+ * 주기적으로 레플리카를 probe 해서 응답하지 않거나 복제 지연(lagQuery)이 maxLag 를 넘은 레플리카는 제외하고,
+ * 쓸 수 있는 레플리카가 없으면 primary 에서 읽는다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    public enum Selection {ROUND_ROBIN, LEAST_LATENCY}
+
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selection selection;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService prober;
+
+    /**
+     * @param lagQuery 레플리카에서 실행해 복제 지연(초)을 돌려주는 쿼리. 없으면 응답 여부만 확인한다.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    Selection selection, Duration maxLag, String lagQuery) {
+        this.primary = primary;
+        this.selection = selection;
+        this.maxLag = maxLag;
+        this.lagQuery = StringUtils.hasText(lagQuery) ? lagQuery : "select 0";
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        probe();
+    }
+
+    /**
+     * interval 마다 백그라운드에서 {@link #probe()} 를 실행한다.
+     */
+    public synchronized void startProbing(Duration interval) {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return selectReplica();
+    }
+
+    String selectReplica() {
+        List<Replica> available = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                available.add(replica);
+            }
+        }
+        if (available.isEmpty()) {
+            return PRIMARY;
+        }
+        if (selection == Selection.LEAST_LATENCY) {
+            Replica fastest = available.get(0);
+            for (Replica replica : available) {
+                if (replica.latencyNanos < fastest.latencyNanos) {
+                    fastest = replica;
+                }
+            }
+            return fastest.name;
+        }
+        return available.get(Math.floorMod(next.getAndIncrement(), available.size())).name;
+    }
+
+    /**
+     * 모든 레플리카의 응답 시간과 복제 지연을 측정해서 사용 가능 여부를 갱신한다.
+     */
+    public void probe() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                double lagSeconds = rs.next() ? rs.getDouble(1) : 0;
+                replica.update(System.nanoTime() - start, lagSeconds, lagSeconds * 1000 <= maxLag.toMillis());
+            } catch (SQLException e) {
+                log.warn("replica {} probe failed: {}", replica.name, e.getMessage());
+                replica.update(System.nanoTime() - start, -1, false);
+            }
+        }
+    }
+
+    /**
+     * 레플리카 이름별 상태. 운영 중 확인용.
+     */
+    public Map<String, Replica> getReplicas() {
+        Map<String, Replica> result = new LinkedHashMap<>();
+        replicas.forEach(replica -> result.put(replica.name, replica));
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+        closeQuietly(primary);
+    }
+
+    private void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("failed to close data source", e);
+            }
+        }
+    }
+
+    @Getter
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available;
+        private volatile double latencyNanos;
+        private volatile double lagSeconds;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void update(long elapsedNanos, double lagSeconds, boolean available) {
+            if (this.available != available) {
+                log.info("replica {} {} (lag={}s)", name, available ? "available" : "unavailable", lagSeconds);
+            }
+            //지수 이동 평균으로 한 번 튀는 응답 시간에 흔들리지 않게 한다.
+            this.latencyNanos = latencyNanos == 0
+                    ? elapsedNanos : latencyNanos + LATENCY_WEIGHT * (elapsedNanos - latencyNanos);
+            this.lagSeconds = lagSeconds;
+            this.available = available;
+        }
+    }
+}
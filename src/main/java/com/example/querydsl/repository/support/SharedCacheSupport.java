@@ -0,0 +1,20 @@
+package com.example.querydsl.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 여러 요청이 공유하는 캐시를 다룰 때 쓰는 공통 판단 로직.
+ */
+public final class SharedCacheSupport {
+
+    private SharedCacheSupport() {
+    }
+
+    /**
+     * 쓰기 가능한 트랜잭션 안에서 조회한 값은 커밋되지 않은 변경을 포함할 수 있으므로 공유 캐시에 담지 않는다.
+     */
+    public static boolean isCacheableRead() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * hibernate.session_factory.statement_inspector 로 등록해서 실행되는 SQL 을 {@link StatementCounter} 에 기록한다.
+ * 열려 있는 카운터가 없으면 ThreadLocal 조회만 하고 끝난다.
+ */
+public class StatementCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.record(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.querydsl.repository.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 현재 스레드에서 실행된 SQL 을 문장별로 센다. {@link StatementCountInspector} 가 Hibernate 에서 호출한다.
+ * 요청이나 트랜잭션, 테스트 단위로 {@link #open()} 해서 try-with-resources 로 닫는다. 중첩해서 열 수 있다.
+ * 다른 스레드에서 실행하는 작업(비동기 쿼리, 비동기 응답)은 {@link #attach()} 로 같은 카운터에 기록한다.
+ * 같은 조회(select)가 threshold 번 이상 반복되면 지연 로딩 등으로 인한 N+1 으로 본다.
+ * insert/update/delete 는 JDBC 배치로 같은 문장이 여러 번 준비되므로 N+1 판단에서 뺀다.
+ */
+public final class StatementCounter implements AutoCloseable {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+
+    private final StatementCounter parent;
+    //여러 스레드에서 기록할 수 있으므로 this 로 보호한다.
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int total;
+
+    private StatementCounter(StatementCounter parent) {
+        this.parent = parent;
+    }
+
+    public static StatementCounter open() {
+        StatementCounter counter = new StatementCounter(CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    /**
+     * 현재 스레드에 열려 있는 카운터. 없으면 null
+     */
+    public static StatementCounter current() {
+        return CURRENT.get();
+    }
+
+    static void record(String sql) {
+        for (StatementCounter counter = CURRENT.get(); counter != null; counter = counter.parent) {
+            synchronized (counter) {
+                counter.counts.merge(sql, 1, Integer::sum);
+                counter.total++;
+            }
+        }
+    }
+
+    /**
+     * 현재 스레드에서 실행되는 SQL 을 이 카운터에 기록한다. 닫으면 현재 스레드의 이전 카운터로 돌아간다.
+     */
+    public Attachment attach() {
+        Attachment attachment = new Attachment(CURRENT.get());
+        CURRENT.set(this);
+        return attachment;
+    }
+
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    public synchronized Map<String, Integer> getCounts() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(counts));
+    }
+
+    /**
+     * threshold 번 이상 실행된 조회 SQL 과 실행 횟수
+     */
+    public synchronized Map<String, Integer> repeated(int threshold) {
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .filter(entry -> isQuery(entry.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    public void assertNoNPlusOne(int threshold) {
+        Map<String, Integer> repeated = repeated(threshold);
+        if (!repeated.isEmpty()) {
+            throw new IllegalStateException("N+1 query suspected (same statement executed " + threshold
+                    + "+ times): " + repeated);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+
+    //use_sql_comments, 쿼리 힌트 주석을 건너뛰고 첫 키워드를 본다.
+    static boolean isQuery(String sql) {
+        String statement = sql.trim();
+        while (statement.startsWith("/*")) {
+            int end = statement.indexOf("*/");
+            if (end < 0) {
+                return false;
+            }
+            statement = statement.substring(end + 2).trim();
+        }
+        String lower = statement.toLowerCase(Locale.ROOT);
+        return lower.startsWith("select") || lower.startsWith("with");
+    }
+
+    public static final class Attachment implements AutoCloseable {
+
+        private final StatementCounter previous;
+
+        private Attachment(StatementCounter previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
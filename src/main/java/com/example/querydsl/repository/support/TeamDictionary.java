@@ -0,0 +1,130 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Team;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 id <-> 이름 사전. 팀 테이블은 작고 거의 바뀌지 않으므로 메모리에 두고
+ * 회원 검색에서 team 조인 없이 팀 이름 조건을 team_id in (...) 으로 바꾸고 팀 이름을 채우는 데 쓴다.
+ * Team 변경(벌크 연산 포함)이 커밋되면 비우고 다음 조회 때 다시 읽는다.
+ * 쓰기 가능한 트랜잭션 안에서는 커밋되지 않은 팀이 있을 수 있으므로 매번 현재 트랜잭션에서 읽고 담아 두지 않는다.
+ */
+@Component
+public class TeamDictionary {
+
+    private final JPAQueryFactory queryFactory;
+    private final boolean enabled;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    //트랜잭션마다 한 번만 무효화한다.
+    private final AfterCommitBuffer<Boolean> invalidation =
+            new AfterCommitBuffer<>(1, written -> invalidate(), this::invalidate);
+
+    public TeamDictionary(EntityManager em, @Value("${querydsl.team-dictionary.enabled:false}") boolean enabled) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.enabled = enabled;
+    }
+
+    /**
+     * 회원 검색에서 조인 대신 사전을 쓸지. (querydsl.team-dictionary.enabled)
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Snapshot current() {
+        if (!SharedCacheSupport.isCacheableRead()) {
+            return load();
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            long startGeneration = generation.get();
+            current = load();
+            synchronized (this) {
+                //읽는 도중 무효화됐다면 오래된 사전일 수 있으므로 담지 않는다.
+                if (generation.get() == startGeneration) {
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @EventListener
+    public void onEntityWrite(EntityWriteEvent event) {
+        if (event.isFor(Team.class)) {
+            invalidation.add(Boolean.TRUE);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkWrite(BulkWriteEvent event) {
+        if (event.isFor(Team.class)) {
+            invalidate();
+        }
+    }
+
+    private Snapshot load() {
+        List<Tuple> rows = queryFactory.select(team.id, team.name).from(team).fetch();
+        Map<Long, String> names = new HashMap<>();
+        Map<String, List<Long>> ids = new HashMap<>();
+        for (Tuple row : rows) {
+            names.put(row.get(team.id), row.get(team.name));
+            ids.computeIfAbsent(row.get(team.name), name -> new ArrayList<>()).add(row.get(team.id));
+        }
+        return new Snapshot(names, ids);
+    }
+
+    public static class Snapshot {
+
+        private final Map<Long, String> names;
+        private final Map<String, List<Long>> ids;
+
+        Snapshot(Map<Long, String> names, Map<String, List<Long>> ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        /**
+         * 팀 이름은 유일하지 않으므로 같은 이름의 팀 id 를 모두 돌려준다. 없으면 빈 목록.
+         */
+        public List<Long> idsOf(String name) {
+            return ids.getOrDefault(name, Collections.emptyList());
+        }
+
+        /**
+         * 사전에 없는 id 면 null. (사전을 읽은 뒤 다른 곳에서 추가된 팀)
+         */
+        public String nameOf(Long id) {
+            return id == null ? null : names.get(id);
+        }
+
+        public boolean contains(Long id) {
+            return names.containsKey(id);
+        }
+
+        public int size() {
+            return names.size();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.querydsl.repository.support;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * JPQL 에서 {@code count(*) over()} 윈도우 함수를 쓸 수 있도록 {@value #COUNT_OVER} 함수를 등록한 H2 방언.
+ * 페이징 조회 시 컨텐츠와 전체 카운트를 한 번의 쿼리로 가져오는데 사용한다.
+ */
+public class WindowFunctionH2Dialect extends H2Dialect {
+
+    public static final String COUNT_OVER = "count_over";
+
+    public WindowFunctionH2Dialect() {
+        super();
+        registerFunction(COUNT_OVER, new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(*) over()"));
+    }
+}
@@ -3,13 +3,16 @@ package com.example.querydsl;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.QMember;
 import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.ChangeCapturingQueryFactory;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.annotation.Commit;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +25,8 @@ import java.util.List;
 public class QuerydslBulkTest {
     @PersistenceContext
     EntityManager em;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
 
     JPAQueryFactory queryFactory;
 
@@ -30,7 +35,7 @@ public class QuerydslBulkTest {
     @BeforeEach
     public void before() {
 
-        queryFactory = new JPAQueryFactory(em);
+        queryFactory = new ChangeCapturingQueryFactory(em, eventPublisher);
 
         Team teamA = new Team("teamA");
         Team teamB = new Team("teamB");
@@ -0,0 +1,106 @@
+package com.example.querydsl;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.QMember;
+import com.example.querydsl.entity.QTeam;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * l2cache 프로파일. 캐시는 커밋 시점에 반영되므로 트랜잭션을 직접 나눠서 검증한다.
+ */
+@SpringBootTest
+@ActiveProfiles("l2cache")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    QMember member = QMember.member;
+    QTeam team = QTeam.team;
+    Long memberId;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        memberId = tx.execute(status -> {
+            Team team = new Team("cacheTeam");
+            em.persist(team);
+            Member member = new Member("cacheMember", 10, team);
+            em.persist(member);
+            teamId = team.getId();
+            return member.getId();
+        });
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).where(member.id.eq(memberId)).execute();
+            queryFactory.delete(team).where(team.id.eq(teamId)).execute();
+            return null;
+        });
+    }
+
+    @Test
+    public void entityCacheEvictedByBulkUpdate() {
+        Member cached = tx.execute(status -> em.find(Member.class, memberId));
+        assertThat(cached.getUsername()).isEqualTo("cacheMember");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+
+        tx.execute(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.username, "bulkUpdated")
+                .where(member.id.eq(memberId))
+                .execute());
+
+        Member reloaded = tx.execute(status -> em.find(Member.class, memberId));
+        assertThat(reloaded.getUsername()).as("벌크 연산 후 region 이 비워져야 한다").isEqualTo("bulkUpdated");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void queryCacheForFindByUsername() {
+        tx.execute(status -> memberJpaRepository.findByUsername_Querydsl("cacheMember"));
+        tx.execute(status -> memberJpaRepository.findByUsername_Querydsl("cacheMember"));
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        tx.execute(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.id.eq(memberId))
+                .execute());
+
+        assertThat(tx.execute(status -> memberJpaRepository.findByUsername_Querydsl("cacheMember")))
+                .extracting("age").containsExactly(11);
+        assertThat(statistics.getQueryCacheHitCount()).as("Member 변경 후에는 쿼리 캐시를 쓰지 않는다").isEqualTo(1);
+    }
+}
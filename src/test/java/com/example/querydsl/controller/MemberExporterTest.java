@@ -0,0 +1,102 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.repository.MemberJpaRepository;
+import com.example.querydsl.repository.support.QueryMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberExporterTest {
+
+    static final int ROWS = 50_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberExporter memberExporter;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    public void exportWritesRowsWhileCursorIsOpen() {
+        em.createNativeQuery("insert into member (member_id, username, age) " +
+                "select x, concat('bulk', x), mod(x, 100) from system_range(1000001, " + (1000000 + ROWS) + ")")
+                .executeUpdate();
+        em.clear();
+        String shape = MemberJpaRepository.searchShape("member.searchStream", new MemberSearchCondition());
+        double before = rowsRead(shape);
+
+        SamplingOutputStream out = new SamplingOutputStream(ROWS / 2, () -> rowsRead(shape) - before,
+                () -> em.unwrap(Session.class).getStatistics().getEntityCount());
+        long written = memberExporter.export(new MemberSearchCondition(), MemberExporter.Format.NDJSON, out);
+
+        assertThat(written).isGreaterThanOrEqualTo(ROWS);
+        assertThat(out.lines).isEqualTo(written);
+        //결과를 모두 모은 뒤에 쓴다면 절반을 받은 시점에 커서를 끝까지 읽어 읽은 행 수가 기록돼 있다.
+        assertThat(out.sampledRowsRead).as("커서를 다 읽기 전에 쓴다").isZero();
+        assertThat(out.sampledEntities).as("DTO 조회라 영속성 컨텍스트에 쌓이지 않는다").isZero();
+        assertThat(rowsRead(shape) - before).isEqualTo(written);
+    }
+
+    @Test
+    public void exportCsv() {
+        em.createNativeQuery("insert into member (member_id, username, age) values (2000001, 'a,\"b\"', 10)")
+                .executeUpdate();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("a,\"b\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        memberExporter.export(condition, MemberExporter.Format.CSV, out);
+
+        assertThat(out.toString()).isEqualTo("memberId,username,age,teamId,teamName\n" +
+                "2000001,\"a,\"\"b\"\"\",10,,\n");
+    }
+
+    private double rowsRead(String shape) {
+        Counter counter = registry.find(QueryMetrics.QUERY_ROWS_READ).tag("shape", shape).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    /**
+     * 줄 수를 세다가 지정한 줄에서 읽은 행 수 지표와 영속성 컨텍스트의 엔티티 수를 기록한다. 받은 바이트는 버린다.
+     */
+    static class SamplingOutputStream extends OutputStream {
+        final long sampleAtLine;
+        final DoubleSupplier rowsRead;
+        final IntSupplier entities;
+        long lines;
+        double sampledRowsRead = -1;
+        int sampledEntities = -1;
+
+        SamplingOutputStream(long sampleAtLine, DoubleSupplier rowsRead, IntSupplier entities) {
+            this.sampleAtLine = sampleAtLine;
+            this.rowsRead = rowsRead;
+            this.entities = entities;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++lines == sampleAtLine) {
+                sampledRowsRead = rowsRead.getAsDouble();
+                sampledEntities = entities.getAsInt();
+            }
+        }
+    }
+}
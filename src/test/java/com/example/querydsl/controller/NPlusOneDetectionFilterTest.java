@@ -0,0 +1,112 @@
+package com.example.querydsl.controller;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.AsyncQueryExecutor;
+import com.example.querydsl.repository.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 테스트 설정에서는 querydsl.n-plus-one.fail 이 켜져 있다.
+ */
+@SpringBootTest
+@Transactional
+class NPlusOneDetectionFilterTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    NPlusOneDetectionFilter filter;
+    @Autowired
+    NPlusOneResponseBodyAdvice advice;
+    @Autowired
+    AsyncQueryExecutor asyncQueryExecutor;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("filter" + i, i);
+            em.persist(member);
+            memberIds.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void nPlusOneFailsBeforeBodyIsWritten() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/members"), response, (req, res) -> {
+            for (Long memberId : memberIds) {
+                em.find(Member.class, memberId);
+            }
+            assertThatThrownBy(() -> writeBody((HttpServletRequest) req, (HttpServletResponse) res))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("N+1");
+        });
+
+        assertThat(response.isCommitted()).isFalse();
+    }
+
+    @Test
+    public void otherwiseBodyIsWritten() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/members"), response, (req, res) -> {
+            em.find(Member.class, memberIds.get(0));
+            assertThat(writeBody((HttpServletRequest) req, (HttpServletResponse) res)).isEqualTo("ok");
+        });
+    }
+
+    @Test
+    public void countsStatementsOnAsyncQueryThreads() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/members");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            for (int i = 0; i < 5; i++) {
+                asyncQueryExecutor.supply(() -> em.createQuery("select count(m) from Member m").getSingleResult())
+                        .join();
+            }
+        });
+
+        assertThat(NPlusOneDetectionFilter.counterOf(request).repeated(5)).hasSize(1);
+    }
+
+    @Test
+    public void batchedInsertsAreNotNPlusOne() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("filterBatch" + i, i));
+            }
+            em.flush();
+
+            assertThat(counter.getTotal()).isPositive();
+            assertThat(counter.repeated(1)).isEmpty();
+        }
+    }
+
+    private Object writeBody(HttpServletRequest request, HttpServletResponse response) {
+        return advice.beforeBodyWrite("ok", null, MediaType.APPLICATION_JSON, null,
+                new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+    }
+}
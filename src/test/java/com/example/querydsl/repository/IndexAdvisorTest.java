@@ -0,0 +1,59 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    IndexAdvisor indexAdvisor;
+
+    @Test
+    public void searchShapesUseIndexes() {
+        Team[] teams = new Team[10];
+        for (int i = 0; i < teams.length; i++) {
+            teams[i] = new Team("team" + i);
+            em.persist(teams[i]);
+        }
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("member" + i, i % 100, teams[i % teams.length]));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition sample = new MemberSearchCondition();
+        sample.setUsername("member42");
+        sample.setTeamName("team2");
+        sample.setAgeGoe(90);
+        sample.setAgeLoe(10);
+
+        List<IndexAdvisor.Plan> plans = indexAdvisor.analyze(sample);
+
+        assertThat(plans).hasSize(16);
+        for (IndexAdvisor.Plan plan : plans) {
+            assertThat(plan.isFullScan("team")).as("%s\n%s", plan.getShape(), plan.getPlan()).isFalse();
+            //조건이 없으면 모든 회원을 돌려주므로 어떤 방법으로도 member 를 모두 읽는다.
+            //팀 이름만 있는 조합은 left join 특성상 member 를 모두 읽는다.
+            //(searchWithTeamDictionary 는 이를 team_id in (...) 으로 바꿔 idx_member_team_age 를 쓸 수 있게 할 뿐 조건 없는 조합과는 무관하다)
+            boolean memberPredicate = plan.getShape().contains("username") || plan.getShape().contains("age");
+            if (memberPredicate) {
+                assertThat(plan.isFullScan("member")).as("%s\n%s", plan.getShape(), plan.getPlan()).isFalse();
+            }
+        }
+    }
+}
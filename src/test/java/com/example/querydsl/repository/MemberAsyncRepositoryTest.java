@@ -0,0 +1,109 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.QueryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 비동기 쿼리는 다른 스레드의 트랜잭션에서 실행되므로 커밋된 데이터로 테스트한다.
+ */
+@SpringBootTest
+public class MemberAsyncRepositoryTest {
+
+    static final String TEAM = "asyncTeam";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberAsyncRepository memberAsyncRepository;
+    @Autowired
+    MeterRegistry registry;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team team = new Team(TEAM);
+            em.persist(team);
+            for (int i = 0; i < 7; i++) {
+                em.persist(new Member("async" + i, 20 + i, team));
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.username like 'async%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name").setParameter("name", TEAM).executeUpdate();
+            return null;
+        });
+    }
+
+    @Test
+    public void searchPageComplexAsync() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(TEAM);
+        PageRequest pageRequest = PageRequest.of(1, 3);
+
+        Page<MemberTeamDto> async = memberAsyncRepository.searchPageComplex(condition, pageRequest, true).get();
+        Page<MemberTeamDto> sync = memberRepository.searchPageComplex(condition, pageRequest, true);
+
+        assertThat(async.getTotalElements()).isEqualTo(7);
+        assertThat(async.getContent()).extracting("username")
+                .containsExactlyElementsOf(sync.map(MemberTeamDto::getUsername).getContent());
+    }
+
+    @Test
+    public void lastPageSkipsCount() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(TEAM);
+        String countShape = MemberJpaRepository.searchShape("memberCustom.searchPageComplex", condition) + ".count";
+        double before = counts(countShape);
+
+        Page<MemberTeamDto> last = memberAsyncRepository.searchPageComplex(condition, PageRequest.of(2, 3), true).get();
+
+        assertThat(last.getContent()).extracting("username").containsExactly("async6");
+        assertThat(last.getTotalElements()).isEqualTo(7);
+        assertThat(counts(countShape)).as("덜 찬 마지막 페이지는 카운트 쿼리를 실행하지 않는다").isEqualTo(before);
+    }
+
+    private double counts(String shape) {
+        Timer timer = registry.find(QueryMetrics.QUERY_TIMER).tag("shape", shape).tag("outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    public void searchAsync() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(TEAM);
+        condition.setAgeGoe(25);
+
+        assertThat(memberAsyncRepository.search(condition).get()).extracting("username")
+                .containsExactlyInAnyOrder("async5", "async6");
+    }
+}
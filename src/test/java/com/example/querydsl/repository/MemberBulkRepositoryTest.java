@@ -0,0 +1,31 @@
+package com.example.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class MemberBulkRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Test
+    public void seedTest() {
+        long saved = memberBulkRepository.seed(Arrays.asList("teamA", "teamB"), 10);
+
+        assertThat(saved).isEqualTo(10);
+        Long teamACount = em.createQuery("select count(m) from Member m where m.team.name = 'teamA'", Long.class)
+                .getSingleResult();
+        assertThat(teamACount).isEqualTo(5);
+    }
+}
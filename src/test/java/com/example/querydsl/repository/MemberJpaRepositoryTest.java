@@ -1,9 +1,15 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.MemberDto;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.QueryMetrics;
+import com.example.querydsl.repository.support.StatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,9 +17,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -25,6 +34,9 @@ public class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    MeterRegistry registry;
+
     @Test
     public void basicTest() {
         Member member = new Member("member1", 10);
@@ -79,4 +91,149 @@ public class MemberJpaRepositoryTest {
         //then
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchTemplateMatchesDynamicQuery() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+
+        //username, teamName, ageGoe, ageLoe 의 16가지 조합
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) == 0 ? null : "member4");
+            condition.setTeamName((shape & 2) == 0 ? null : "teamA");
+            condition.setAgeGoe((shape & 4) == 0 ? null : 20);
+            condition.setAgeLoe((shape & 8) == 0 ? null : 60);
+
+            assertThat(memberJpaRepository.search(condition))
+                    .as("shape %d", shape)
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchDynamic(condition));
+        }
+    }
+
+    @Test
+    public void findMemberReturnsManagedEntitiesUnlessReadOnly() {
+        em.persist(new Member("managed", 10));
+        em.persist(new Member("readOnly", 10));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition managed = new MemberSearchCondition();
+        managed.setUsername("managed");
+        MemberSearchCondition readOnly = new MemberSearchCondition();
+        readOnly.setUsername("readOnly");
+
+        memberJpaRepository.findMember(managed).forEach(m -> m.setAge(20));
+        memberJpaRepository.findMemberReadOnly(readOnly).forEach(m -> m.setAge(20));
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.findByUsername("managed")).extracting("age").containsExactly(20);
+        assertThat(memberJpaRepository.findByUsername("readOnly")).extracting("age").containsExactly(10);
+    }
+
+    @Test
+    public void findMemberProjection() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        List<MemberTeamDto> result = memberJpaRepository.findMember(condition, MemberTeamDto.class);
+        List<MemberDto> names = memberJpaRepository.findMember(condition, MemberDto.class);
+
+        assertThat(result).extracting("username", "teamId", "teamName")
+                .containsExactlyInAnyOrder(
+                        tuple("member1", teamA.getId(), "teamA"),
+                        tuple("member2", teamA.getId(), "teamA"));
+        assertThat(names).extracting("username", "age")
+                .containsExactlyInAnyOrder(tuple("member1", 10), tuple("member2", 20));
+        //DTO 로만 조회했으므로 영속성 컨텍스트에 엔티티가 없다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void searchColumnsMatchesSearch() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        assertThat(memberJpaRepository.searchColumns(condition))
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchDynamic(condition));
+    }
+
+    @Test
+    public void searchWithTeamDictionaryMatchesJoinedQuery() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 3 == 0 ? null : i % 3 == 1 ? teamA : teamB));
+        }
+        em.flush();
+
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) == 0 ? null : "member4");
+            condition.setTeamName((shape & 2) == 0 ? null : "teamA");
+            condition.setAgeGoe((shape & 4) == 0 ? null : 20);
+            condition.setAgeLoe((shape & 8) == 0 ? null : 60);
+
+            try (StatementCounter counter = StatementCounter.open()) {
+                assertThat(memberJpaRepository.searchWithTeamDictionary(condition))
+                        .as("shape %d", shape)
+                        .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchDynamic(condition));
+                assertThat(counter.getCounts().keySet())
+                        .filteredOn(sql -> sql.contains("from member"))
+                        .filteredOn(sql -> !sql.contains("join"))
+                        .as("shape %d 는 조인 없는 쿼리가 있어야 한다", shape)
+                        .isNotEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void searchStreamRecordsWhenExhausted() {
+        em.persist(new Member("streamMetrics", 10));
+        em.persist(new Member("streamMetrics", 20));
+        em.flush();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("streamMetrics");
+        String shape = MemberJpaRepository.searchShape("member.searchStream", condition);
+        double before = rowsRead(shape);
+
+        try (Stream<MemberTeamDto> rows = memberJpaRepository.searchStream(condition)) {
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            iterator.next();
+            iterator.next();
+            assertThat(rowsRead(shape) - before).as("끝까지 읽기 전에는 기록하지 않는다").isZero();
+            assertThat(iterator.hasNext()).isFalse();
+            assertThat(rowsRead(shape) - before).isEqualTo(2);
+        }
+        assertThat(rowsRead(shape) - before).as("close 할 때 다시 기록하지 않는다").isEqualTo(2);
+    }
+
+    private double rowsRead(String shape) {
+        Counter counter = registry.find(QueryMetrics.QUERY_ROWS_READ).tag("shape", shape).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -1,18 +1,30 @@
 package com.example.querydsl.repository;
 
+import com.example.querydsl.dto.MemberKeysetSort;
 import com.example.querydsl.dto.MemberSearchCondition;
 import com.example.querydsl.dto.MemberTeamDto;
 import com.example.querydsl.entity.Member;
 import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.InvalidContinuationTokenException;
+import com.example.querydsl.repository.support.KeysetCursor;
+import com.example.querydsl.repository.support.KeysetPage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -21,6 +33,8 @@ public class MemberRepositoryTest {
     @Autowired
     EntityManager em;
     @Autowired
+    EntityManagerFactory emf;
+    @Autowired
     MemberRepository memberRepository;
 
     @Test
@@ -63,4 +77,89 @@ public class MemberRepositoryTest {
         assertThat(result).extracting("username").containsExactly("member4");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchKeysetTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 20, teamB));
+        em.persist(new Member("member5", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        KeysetPage<MemberTeamDto> page1 = memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, null, 2);
+        assertThat(page1.getContent()).extracting("username").containsExactly("member4", "member1");
+        assertThat(page1.hasNext()).isTrue();
+
+        KeysetPage<MemberTeamDto> page2 = memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, page1.getNextToken(), 2);
+        assertThat(page2.getContent()).extracting("username").containsExactly("member3", "member5");
+        assertThat(page2.hasNext()).isFalse();
+        assertThat(page2.getNextToken()).isNull();
+
+        //정렬을 생략하면 토큰의 정렬을 따르고, 다른 정렬을 지정하거나 위조된 토큰이면 거절한다.
+        assertThat(memberRepository.searchKeyset(condition, null, page1.getNextToken(), 2).getContent())
+                .extracting("username").containsExactly("member3", "member5");
+        assertThatThrownBy(() -> memberRepository.searchKeyset(condition, MemberKeysetSort.MEMBER_ID,
+                page1.getNextToken(), 2)).isInstanceOf(InvalidContinuationTokenException.class);
+        assertThatThrownBy(() -> memberRepository.searchKeyset(condition, null, "not-a-token", 2))
+                .isInstanceOf(InvalidContinuationTokenException.class);
+        String forged = new KeysetCursor("NAME", 0, 0).encode();
+        assertThatThrownBy(() -> memberRepository.searchKeyset(condition, null, forged, 2))
+                .isInstanceOf(InvalidContinuationTokenException.class);
+    }
+
+    @Test
+    public void searchPageWindowedTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(1, 2);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        statistics.clear();
+        Page<MemberTeamDto> simple = memberRepository.searchPageSimple(condition, pageRequest);
+        long simpleStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        Page<MemberTeamDto> windowed = memberRepository.searchPageWindowed(condition, pageRequest);
+        long windowedStatements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertThat(windowed.getContent()).isEqualTo(simple.getContent());
+        assertThat(windowed.getTotalElements()).isEqualTo(simple.getTotalElements()).isEqualTo(5);
+        assertThat(simpleStatements).isEqualTo(2);
+        assertThat(windowedStatements).isEqualTo(1);
+    }
+
+    @Test
+    public void findByUsernames() {
+        Member member1 = new Member("batch1", 10);
+        Member member2 = new Member("batch2", 20);
+        Member member3 = new Member("batch2", 30);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        Map<String, List<Member>> result = memberRepository.findByUsernames(
+                Arrays.asList("batch2", "batch1", "batch2", "none"));
+
+        assertThat(result).containsOnlyKeys("batch2", "batch1", "none");
+        assertThat(result.get("batch1")).containsExactly(member1);
+        assertThat(result.get("batch2")).containsExactlyInAnyOrder(member2, member3);
+        assertThat(result.get("none")).isEmpty();
+    }
+}
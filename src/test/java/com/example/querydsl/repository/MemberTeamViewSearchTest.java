@@ -0,0 +1,165 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.ChunkedBulkExecutor;
+import com.example.querydsl.repository.support.MemberTeamView;
+import com.example.querydsl.repository.support.QueryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * querydsl.member-team-view.enabled 를 켜고 리포지토리의 회원 검색이 뷰를 거치는지 확인한다.
+ * 뷰는 쓰기 가능한 트랜잭션 밖에서만 쓰고 커밋된 변경이 구독 스레드에서 반영되므로 테스트 트랜잭션을 쓰지 않는다.
+ */
+@SpringBootTest(properties = "querydsl.member-team-view.enabled=true")
+public class MemberTeamViewSearchTest {
+
+    static final String PREFIX = "viewSearch";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ChunkedBulkExecutor executor;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTeamView view;
+    @Autowired
+    MeterRegistry registry;
+
+    TransactionTemplate tx;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team teamA = new Team(PREFIX + "A");
+            Team teamB = new Team(PREFIX + "B");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 6; i++) {
+                em.persist(new Member(PREFIX + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+            teamBId = teamB.getId();
+            return null;
+        });
+        awaitConsistent();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.delete(member, member.id, member.username.startsWith(PREFIX), progress -> { });
+        tx.execute(status -> em.createQuery("delete from Team t where t.name like :prefix")
+                .setParameter("prefix", PREFIX + "%")
+                .executeUpdate());
+    }
+
+    @Test
+    public void searchUsesView() {
+        MemberSearchCondition condition = condition(PREFIX + "A", 10);
+        double before = timed(MemberJpaRepository.searchShape("member.searchView", condition));
+
+        List<MemberTeamDto> result = memberJpaRepository.search(condition);
+
+        assertThat(timed(MemberJpaRepository.searchShape("member.searchView", condition)) - before).isEqualTo(1);
+        assertThat(result).containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchDynamic(condition));
+        assertThat(result).extracting("username").containsExactlyInAnyOrder(PREFIX + "2", PREFIX + "4");
+    }
+
+    @Test
+    public void searchContentUsesView() {
+        MemberSearchCondition condition = condition(PREFIX + "B", null);
+        double before = timed(MemberJpaRepository.searchShape("memberCustom.searchView", condition));
+
+        List<MemberTeamDto> page = memberRepository.searchContent(condition, PageRequest.of(1, 2));
+
+        assertThat(timed(MemberJpaRepository.searchShape("memberCustom.searchView", condition)) - before).isEqualTo(1);
+        //뷰는 회원 id 순서다.
+        assertThat(page).extracting("username").containsExactly(PREFIX + "5");
+    }
+
+    @Test
+    public void onlyExactCountRunsCountQuery() {
+        MemberSearchCondition condition = condition(PREFIX + "A", null);
+        String countShape = MemberJpaRepository.searchShape("memberCustom.searchPageComplex", condition) + ".count";
+        double before = timed(countShape);
+
+        assertThat(memberRepository.searchCount(condition, false)).isEqualTo(3);
+        assertThat(timed(countShape)).as("뷰에서 센다").isEqualTo(before);
+
+        assertThat(memberRepository.searchCount(condition, true)).isEqualTo(3);
+        assertThat(timed(countShape) - before).isEqualTo(1);
+    }
+
+    @Test
+    public void teamDeleteRebuildsRowsOfThatTeam() {
+        tx.execute(status -> {
+            //엔티티를 거치지 않고 회원을 팀에서 빼므로 뷰에는 팀 삭제만 전달된다.
+            em.createNativeQuery("update member set team_id = null where team_id = :teamId")
+                    .setParameter("teamId", teamBId)
+                    .executeUpdate();
+            em.remove(em.find(Team.class, teamBId));
+            return null;
+        });
+        awaitConsistent();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(PREFIX + "1");
+        assertThat(memberJpaRepository.search(condition)).extracting("teamId", "teamName")
+                .containsExactly(tuple(null, null));
+    }
+
+    private double timed(String shape) {
+        Timer timer = registry.find(QueryMetrics.QUERY_TIMER).tag("shape", shape).tag("outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private void awaitConsistent() {
+        long deadline = System.currentTimeMillis() + 5000;
+        MemberTeamView.Consistency consistency = view.check();
+        while (!consistency.isConsistent() && System.currentTimeMillis() < deadline) {
+            sleep();
+            consistency = view.check();
+        }
+        assertThat(consistency.isConsistent()).as(consistency.toString()).isTrue();
+        assertThat(view.isReadable()).isTrue();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        return condition;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.repository.support.QueryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 배치 조회는 별도 스레드의 읽기 전용 트랜잭션에서 실행되므로 테스트 트랜잭션을 쓰지 않고 커밋한다.
+ */
+@SpringBootTest
+public class MemberUsernameLoaderTest {
+
+    static final String PREFIX = "loader";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberUsernameLoader loader;
+    @Autowired
+    MeterRegistry registry;
+
+    TransactionTemplate tx;
+    ServletRequestAttributes request;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            em.persist(new Member(PREFIX + "1", 10));
+            em.persist(new Member(PREFIX + "2", 20));
+            return null;
+        });
+        request = new ServletRequestAttributes(new MockHttpServletRequest());
+        RequestContextHolder.setRequestAttributes(request);
+    }
+
+    @AfterEach
+    public void after() {
+        request.requestCompleted();
+        RequestContextHolder.resetRequestAttributes();
+        tx.execute(status -> em.createQuery("delete from Member m where m.username like :prefix")
+                .setParameter("prefix", PREFIX + "%")
+                .executeUpdate());
+    }
+
+    @Test
+    public void coalescesLoadsWithinRequest() {
+        double before = batches();
+
+        CompletableFuture<List<Member>> first = loader.load(PREFIX + "1");
+        CompletableFuture<List<Member>> second = loader.load(PREFIX + "2");
+        CompletableFuture<List<Member>> again = loader.load(PREFIX + "1");
+        CompletableFuture<List<Member>> missing = loader.load(PREFIX + "missing");
+
+        assertThat(first.join()).extracting("age").containsExactly(10);
+        assertThat(second.join()).extracting("age").containsExactly(20);
+        assertThat(again).isSameAs(first);
+        assertThat(missing.join()).isEmpty();
+        assertThat(batches() - before).as("같은 요청의 조회는 한 번에 묶인다").isEqualTo(1);
+    }
+
+    private double batches() {
+        Timer timer = registry.find(QueryMetrics.QUERY_TIMER).tag("shape", "member.findByUsernames")
+                .tag("outcome", "success")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
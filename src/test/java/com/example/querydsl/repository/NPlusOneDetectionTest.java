@@ -0,0 +1,77 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+public class NPlusOneDetectionTest {
+
+    static final int THRESHOLD = 5;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    List<Long> memberIds = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            Member member = new Member("member" + i, i, team);
+            em.persist(member);
+            memberIds.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void detectRepeatedStatement() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            for (Long memberId : memberIds) {
+                em.find(Member.class, memberId);
+            }
+            assertThatThrownBy(() -> counter.assertNoNPlusOne(THRESHOLD))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("N+1");
+        }
+    }
+
+    @Test
+    public void lazyTeamLoadedInBatch() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            List<Member> members = memberTestRepository.basicSelectFrom();
+            members.forEach(member -> member.getTeam().getName());
+
+            counter.assertNoNPlusOne(THRESHOLD);
+            assertThat(counter.getTotal()).as("회원 조회 + 팀 배치 조회").isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void declaredAssociationFetchJoined() {
+        try (StatementCounter counter = StatementCounter.open()) {
+            List<Member> members = memberTestRepository.basicSelectFromWithTeam();
+            members.forEach(member -> member.getTeam().getName());
+
+            assertThat(counter.getTotal()).isEqualTo(1);
+        }
+    }
+}
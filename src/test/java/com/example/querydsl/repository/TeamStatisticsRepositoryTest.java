@@ -0,0 +1,173 @@
+package com.example.querydsl.repository;
+
+import com.example.querydsl.dto.TeamStatistics;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 구간별 집계는 다른 스레드의 트랜잭션에서 실행되므로 커밋된 데이터로 테스트한다.
+ */
+@SpringBootTest
+public class TeamStatisticsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    TeamStatisticsRepository teamStatisticsRepository;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team teamA = new Team("statsA");
+            Team teamB = new Team("statsB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("stats" + i, 10 + i, i % 4 == 0 ? teamB : teamA));
+            }
+            em.persist(new Member("stats-noteam", 99));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.execute(status -> {
+            em.createQuery("delete from Member m where m.username like 'stats%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'stats%'").executeUpdate();
+            return null;
+        });
+        teamStatisticsRepository.invalidate();
+    }
+
+    @Test
+    public void partitionedMatchesSingleQuery() {
+        List<TeamStatistics> single = stats(teamStatisticsRepository.statistics());
+
+        assertThat(single).extracting("teamName", "count", "sum", "max", "min", "avg")
+                .containsExactly(
+                        tuple("statsA", 15L, 300L, 29, 11, 20.0),
+                        tuple("statsB", 5L, 90L, 26, 10, 18.0));
+        for (int partitions : new int[]{1, 3, 7, 100}) {
+            assertThat(stats(teamStatisticsRepository.statisticsPartitioned(partitions)))
+                    .as("partitions %d", partitions)
+                    .isEqualTo(single);
+        }
+        assertThatThrownBy(() -> teamStatisticsRepository.statisticsPartitioned(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void incrementalFollowsMemberWrites() {
+        assertThat(stats(teamStatisticsRepository.statisticsIncremental()))
+                .isEqualTo(stats(teamStatisticsRepository.statistics()));
+
+        tx.execute(status -> {
+            em.persist(new Member("stats-new", 70, em.find(Team.class, teamBId)));
+            List<Member> members = em.createQuery("select m from Member m where m.username in ('stats0', 'stats1')",
+                    Member.class).getResultList();
+            for (Member member : members) {
+                if (member.getUsername().equals("stats0")) {
+                    //teamB 의 최소 나이(10) 회원을 teamA 로 옮긴다.
+                    member.changeTeam(em.find(Team.class, teamAId));
+                } else {
+                    em.remove(member);
+                }
+            }
+            return null;
+        });
+
+        List<TeamStatistics> incremental = stats(teamStatisticsRepository.statisticsIncremental());
+        assertThat(incremental).isEqualTo(stats(teamStatisticsRepository.statistics()));
+        assertThat(incremental).extracting("teamName", "count", "max", "min")
+                .containsExactly(
+                        tuple("statsA", 15L, 29, 10),
+                        tuple("statsB", 5L, 70, 14));
+    }
+
+    @Test
+    public void incrementalDoesNotCountWriteCommittedDuringFirstLoad() throws Exception {
+        teamStatisticsRepository.invalidate();
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> write = writer.submit(() -> tx.execute(status -> {
+                //이벤트 리스너보다 먼저 실행되어 커밋 이후, 집계 반영 이전에 멈춘다.
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public int getOrder() {
+                        return Ordered.HIGHEST_PRECEDENCE;
+                    }
+
+                    @Override
+                    public void afterCommit() {
+                        committed.countDown();
+                        await(loaded);
+                    }
+                });
+                em.persist(new Member("stats-concurrent", 50, em.find(Team.class, teamAId)));
+                return null;
+            }));
+
+            assertThat(committed.await(5, TimeUnit.SECONDS)).isTrue();
+            //커밋된 회원까지 읽는다.
+            teamStatisticsRepository.statisticsIncremental();
+            loaded.countDown();
+            write.get(5, TimeUnit.SECONDS);
+        } finally {
+            loaded.countDown();
+            writer.shutdownNow();
+        }
+
+        assertThat(stats(teamStatisticsRepository.statisticsIncremental()))
+                .extracting("teamName", "count")
+                .containsExactly(tuple("statsA", 16L), tuple("statsB", 5L));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<TeamStatistics> stats(List<TeamStatistics> statistics) {
+        return statistics.stream()
+                .filter(s -> s.getTeamName() != null && s.getTeamName().startsWith("stats"))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AfterCommitBufferTest {
+
+    List<List<Integer>> committed = new ArrayList<>();
+    AtomicInteger overflows = new AtomicInteger();
+    AfterCommitBuffer<Integer> buffer = new AfterCommitBuffer<>(3,
+            values -> committed.add(new ArrayList<>(values)), overflows::incrementAndGet);
+
+    @AfterEach
+    public void after() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void outsideTransactionRunsImmediately() {
+        buffer.add(1);
+
+        assertThat(committed).containsExactly(Arrays.asList(1));
+    }
+
+    @Test
+    public void oneSynchronizationPerTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        buffer.add(1);
+        buffer.add(2);
+        buffer.add(1);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        assertThat(committed).as("커밋 전").isEmpty();
+
+        synchronizations.get(0).afterCommit();
+        assertThat(committed).containsExactly(Arrays.asList(1, 2));
+        assertThat(overflows).hasValue(0);
+    }
+
+    @Test
+    public void overLimitRunsOverflow() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+        }
+        TransactionSynchronizationManager.getSynchronizations().get(0).afterCommit();
+
+        assertThat(committed).isEmpty();
+        assertThat(overflows).hasValue(1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchLoaderTest {
+
+    AsyncQueryExecutor executor = new AsyncQueryExecutor(4);
+    List<Collection<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void after() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void coalescesLoadsWithinWindow() {
+        BatchLoader<String, Integer> loader = new BatchLoader<>(this::lengths, executor, Duration.ofMillis(50), 100);
+
+        CompletableFuture<Integer> a = loader.load("a");
+        CompletableFuture<Integer> bb = loader.load("bb");
+        CompletableFuture<Integer> again = loader.load("a");
+
+        assertThat(a.join()).isEqualTo(1);
+        assertThat(bb.join()).isEqualTo(2);
+        assertThat(again).isSameAs(a);
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly("a", "bb");
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() {
+        BatchLoader<String, Integer> loader = new BatchLoader<>(this::lengths, executor, Duration.ofMinutes(1), 2);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        futures.add(loader.load("a"));
+        futures.add(loader.load("bb"));
+        futures.add(loader.load("ccc"));
+        loader.close();
+
+        assertThat(futures.stream().map(CompletableFuture::join)).containsExactly(1, 2, 3);
+        assertThat(batches).hasSize(2);
+    }
+
+    private Map<String, Integer> lengths(Collection<String> keys) {
+        batches.add(new ArrayList<>(keys));
+        return keys.stream().collect(Collectors.toMap(Function.identity(), String::length));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋 이후에 전달되는지 확인해야 하므로 테스트 트랜잭션을 쓰지 않는다.
+ */
+@SpringBootTest
+public class ChangeStreamTest {
+
+    static final String PREFIX = "stream";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    ChangeStream changeStream;
+    @Autowired
+    ChunkedBulkExecutor executor;
+    @Autowired
+    MeterRegistry registry;
+
+    TransactionTemplate tx;
+    BlockingQueue<ChangeBatch> batches = new LinkedBlockingQueue<>();
+    List<ChangeStream.Subscription> subscriptions = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        subscriptions.add(changeStream.subscribe(new ChangeSubscriber() {
+            @Override
+            public boolean accepts(Class<?> entityType) {
+                return entityType == Member.class || entityType == Team.class;
+            }
+
+            @Override
+            public void onChanges(ChangeBatch batch) {
+                batches.add(batch);
+            }
+        }));
+    }
+
+    @AfterEach
+    public void after() {
+        subscriptions.forEach(ChangeStream.Subscription::close);
+        executor.delete(member, member.id, member.username.startsWith(PREFIX), progress -> { });
+        tx.execute(status -> em.createQuery("delete from Team t where t.name like :prefix")
+                .setParameter("prefix", PREFIX + "%")
+                .executeUpdate());
+    }
+
+    @Test
+    public void publishesOneBatchPerCommitInOrder() throws Exception {
+        Long memberId = tx.execute(status -> {
+            Team team = new Team(PREFIX + "A");
+            em.persist(team);
+            Member saved = new Member(PREFIX + "1", 10, team);
+            em.persist(saved);
+            em.persist(new Member(PREFIX + "2", 20, team));
+            return saved.getId();
+        });
+        tx.execute(status -> {
+            Team teamB = new Team(PREFIX + "B");
+            em.persist(teamB);
+            em.find(Member.class, memberId).changeTeam(teamB);
+            return null;
+        });
+
+        ChangeBatch first = batches.poll(5, TimeUnit.SECONDS);
+        ChangeBatch second = batches.poll(5, TimeUnit.SECONDS);
+
+        assertThat(first.getEvents()).extracting(ChangeEvent::getType)
+                .containsOnly(ChangeEvent.Type.INSERT)
+                .hasSize(3);
+        assertThat(second.getSequence()).isGreaterThan(first.getSequence());
+        assertThat(second.getEvents()).extracting(ChangeEvent::getType)
+                .containsExactlyInAnyOrder(ChangeEvent.Type.INSERT, ChangeEvent.Type.UPDATE);
+        ChangeEvent changeTeam = second.getEvents().stream()
+                .filter(event -> event.getType() == ChangeEvent.Type.UPDATE)
+                .findFirst()
+                .get();
+        assertThat(changeTeam.getId()).isEqualTo(memberId);
+        assertThat(((Team) changeTeam.getPreviousState().get("team")).getName()).isEqualTo(PREFIX + "A");
+        assertThat(((Team) changeTeam.getState().get("team")).getName()).isEqualTo(PREFIX + "B");
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() throws Exception {
+        tx.execute(status -> {
+            em.persist(new Team(PREFIX + "rollback"));
+            em.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(batches.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void capturesBulkClauses() throws Exception {
+        tx.execute(status -> {
+            Team team = new Team(PREFIX + "bulk");
+            em.persist(team);
+            em.persist(new Member(PREFIX + "3", 30, team));
+            return null;
+        });
+        batches.poll(5, TimeUnit.SECONDS);
+
+        tx.execute(status -> new ChangeCapturingQueryFactory(em, eventPublisher)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith(PREFIX))
+                .execute());
+
+        ChangeBatch bulk = batches.poll(5, TimeUnit.SECONDS);
+        assertThat(bulk.getEvents()).hasSize(1);
+        assertThat(bulk.getEvents().get(0).getType()).isEqualTo(ChangeEvent.Type.BULK);
+        assertThat(bulk.getEvents().get(0).getAffectedRows()).isEqualTo(1);
+    }
+
+    @Test
+    public void disabledSubscriberBeanIsNotSubscribed() {
+        //테스트 설정에서는 querydsl.member-team-view.enabled 가 꺼져 있다.
+        assertThat(registry.find(ChangeStream.QUEUED).tag("subscriber", "MemberTeamView").gauge()).isNull();
+    }
+
+    @Test
+    public void slowSubscriberOverflows() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong firstSequence = new AtomicLong();
+        BlockingQueue<Long> overflows = new LinkedBlockingQueue<>();
+        subscriptions.add(changeStream.subscribe(new ChangeSubscriber() {
+            @Override
+            public void onChanges(ChangeBatch batch) {
+                if (firstSequence.compareAndSet(0, batch.getSequence())) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onOverflow(long lastLostSequence) {
+                overflows.add(lastLostSequence);
+            }
+        }, 1, Duration.ofMillis(10)));
+
+        //트랜잭션 밖에서 발행하면 바로 전달된다. 첫 배치를 처리하는 동안 하나는 큐에 들어가고 다음 것은 넘친다.
+        eventPublisher.publishEvent(new BulkWriteEvent(Member.class, 1));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        eventPublisher.publishEvent(new BulkWriteEvent(Member.class, 1));
+        eventPublisher.publishEvent(new BulkWriteEvent(Member.class, 1));
+        release.countDown();
+
+        assertThat(overflows.poll(5, TimeUnit.SECONDS)).isGreaterThan(firstSequence.get() + 1);
+    }
+}
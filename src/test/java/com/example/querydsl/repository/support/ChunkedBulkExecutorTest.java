@@ -0,0 +1,126 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 청크마다 커밋되는지 확인해야 하므로 테스트 트랜잭션을 쓰지 않는다.
+ */
+@SpringBootTest
+public class ChunkedBulkExecutorTest {
+
+    static final String PREFIX = "chunked";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ChunkedBulkExecutor executor;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team team = new Team(PREFIX);
+            em.persist(team);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member(PREFIX + i, i, team));
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        executor.delete(member, member.id, member.username.startsWith(PREFIX), progress -> { });
+        tx.execute(status -> em.createQuery("delete from Team t where t.name = :name")
+                .setParameter("name", PREFIX)
+                .executeUpdate());
+    }
+
+    @Test
+    public void updateInChunks() {
+        List<BulkProgress> events = new ArrayList<>();
+
+        BulkProgress result = executor.update(member, member.id, member.username.startsWith(PREFIX),
+                clause -> clause.set(member.age, member.age.add(100)), 3, events::add);
+
+        assertThat(result.getAffectedRows()).isEqualTo(10);
+        assertThat(result.isDone()).isTrue();
+        assertThat(events).hasSize((int) result.getTotalChunks());
+        assertThat(events.get(0).getCompletedChunks()).isEqualTo(1);
+
+        List<Integer> ages = tx.execute(status -> em
+                .createQuery("select m.age from Member m where m.username like :prefix order by m.age", Integer.class)
+                .setParameter("prefix", PREFIX + "%")
+                .getResultList());
+        assertThat(ages).first().isEqualTo(100);
+        assertThat(ages).last().isEqualTo(109);
+    }
+
+    @Test
+    public void multiplyInsideTransaction() {
+        tx.execute(status -> {
+            Member loaded = em.createQuery("select m from Member m where m.username = :username", Member.class)
+                    .setParameter("username", PREFIX + "2")
+                    .getSingleResult();
+
+            executor.update(member, member.id, member.username.startsWith(PREFIX),
+                    clause -> clause.set(member.age, member.age.multiply(2)), 4, progress -> { });
+
+            //벌크 연산 후에는 영속성 컨텍스트가 비워져 있으므로 다시 조회하면 바뀐 값이 보인다.
+            assertThat(em.contains(loaded)).isFalse();
+            Member reloaded = em.find(Member.class, loaded.getId());
+            assertThat(reloaded.getAge()).isEqualTo(4);
+            return null;
+        });
+    }
+
+    @Test
+    public void deleteInChunks() {
+        BulkProgress result = executor.delete(member, member.id,
+                member.username.startsWith(PREFIX).and(member.age.goe(5)), 2, progress -> { });
+
+        assertThat(result.getAffectedRows()).isEqualTo(5);
+    }
+
+    @Test
+    public void sparseIdsDoNotProduceEmptyChunks() {
+        //짝수 나이만 남겨 id 사이에 구멍을 만든다.
+        executor.delete(member, member.id, member.username.startsWith(PREFIX).and(member.age.mod(2).eq(1)),
+                progress -> { });
+        List<BulkProgress> events = new ArrayList<>();
+
+        BulkProgress result = executor.update(member, member.id, member.username.startsWith(PREFIX),
+                clause -> clause.set(member.age, member.age.add(100)), 2, events::add);
+
+        assertThat(result.getAffectedRows()).isEqualTo(5);
+        assertThat(result.getTotalChunks()).isEqualTo(3);
+        assertThat(events).extracting(BulkProgress::getAffectedRows).containsExactly(2L, 4L, 5L);
+    }
+
+    @Test
+    public void nothingToDo() {
+        BulkProgress result = executor.delete(member, member.id, member.username.eq("no such member"), progress -> { });
+
+        assertThat(result.getAffectedRows()).isZero();
+        assertThat(result.getTotalChunks()).isZero();
+    }
+}
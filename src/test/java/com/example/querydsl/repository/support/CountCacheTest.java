@@ -0,0 +1,63 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountCacheTest {
+
+    CountCache countCache;
+
+    @AfterEach
+    public void after() {
+        countCache.shutdown();
+    }
+
+    @Test
+    public void cachedUntilInvalidated() {
+        countCache = new CountCache(Duration.ofMinutes(1), 10);
+        AtomicLong total = new AtomicLong(5);
+
+        assertThat(countCache.count("key", total::get, false)).isEqualTo(5);
+        total.set(7);
+        assertThat(countCache.count("key", total::get, false)).as("캐시된 값").isEqualTo(5);
+        assertThat(countCache.count("key", total::get, true)).as("exact 는 항상 계산").isEqualTo(7);
+
+        total.set(9);
+        countCache.onEntityWrite(new EntityWriteEvent(Member.class, 1L, EntityWriteEvent.Type.INSERT));
+        assertThat(countCache.count("key", total::get, false)).isEqualTo(9);
+    }
+
+    @Test
+    public void staleValueIsRefreshedInBackground() throws Exception {
+        countCache = new CountCache(Duration.ofMillis(1), 10);
+        AtomicLong total = new AtomicLong(5);
+        countCache.count("key", total::get, false);
+
+        total.set(7);
+        Thread.sleep(10);
+        assertThat(countCache.count("key", total::get, false)).as("만료돼도 우선 이전 값").isEqualTo(5);
+
+        long refreshed = 5;
+        for (int i = 0; i < 100 && refreshed != 7; i++) {
+            Thread.sleep(10);
+            refreshed = countCache.count("key", () -> -1L, false);
+        }
+        assertThat(refreshed).isEqualTo(7);
+    }
+
+    @Test
+    public void sizeBounded() {
+        countCache = new CountCache(Duration.ofMinutes(1), 2);
+        countCache.count("a", () -> 1L, false);
+        countCache.count("b", () -> 2L, false);
+        countCache.count("c", () -> 3L, false);
+
+        assertThat(countCache.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static com.example.querydsl.entity.QMember.member;
+import static com.example.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class CountQueryOptimizerTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("countA");
+        Team teamB = new Team("countB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("count" + i, i * 10, i % 3 == 0 ? null : i % 3 == 1 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void dropsUnreferencedLeftJoinAndOrder() {
+        JPAQuery<Member> content = queryFactory.selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"), member.age.goe(20))
+                .orderBy(member.age.desc());
+
+        JPAQuery<?> count = CountQueryOptimizer.optimize(em, content);
+
+        assertThat(count.getMetadata().getJoins()).hasSize(1);
+        assertThat(count.getMetadata().getOrderBy()).isEmpty();
+        assertThat(count.fetchCount()).isEqualTo(content.fetchCount()).isEqualTo(8);
+    }
+
+    @Test
+    public void dropsFetchJoin() {
+        JPAQuery<Member> content = queryFactory.selectFrom(member)
+                .leftJoin(member.team).fetchJoin()
+                .where(member.username.startsWith("count"));
+
+        JPAQuery<?> count = CountQueryOptimizer.optimize(em, content);
+
+        assertThat(count.getMetadata().getJoins()).hasSize(1);
+        assertThat(count.fetchCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void turnsFilteredToOneJoinIntoExists() {
+        JPAQuery<Member> content = queryFactory.selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"), team.name.eq("countA"));
+
+        JPAQuery<?> count = CountQueryOptimizer.optimize(em, content);
+
+        assertThat(count.getMetadata().getJoins()).hasSize(1);
+        assertThat(count.getMetadata().getWhere().toString()).contains("exists");
+        assertThat(count.fetchCount()).isEqualTo(content.fetchCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void keepsJoinWhenNullMatters() {
+        JPAQuery<Member> isNull = queryFactory.selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"), team.name.isNull());
+        JPAQuery<String> projected = queryFactory.select(team.name).from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"));
+
+        assertThat(CountQueryOptimizer.optimize(em, isNull).getMetadata().getJoins()).hasSize(2);
+        assertThat(CountQueryOptimizer.optimize(em, isNull).fetchCount()).isEqualTo(4);
+        assertThat(CountQueryOptimizer.optimize(em, projected).getMetadata().getJoins()).hasSize(2);
+    }
+
+    @Test
+    public void keepsRightJoin() {
+        JPAQuery<Member> content = queryFactory.selectFrom(member)
+                .rightJoin(member.team, team)
+                .where(team.name.eq("countA"));
+
+        JPAQuery<?> count = CountQueryOptimizer.optimize(em, content);
+
+        assertThat(count.getMetadata().getJoins()).hasSize(2);
+        assertThat(count.getMetadata().getWhere().toString()).doesNotContain("exists");
+        assertThat(count.fetchCount()).isEqualTo(content.fetchCount()).isEqualTo(3);
+    }
+}
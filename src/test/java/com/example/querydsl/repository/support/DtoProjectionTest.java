@@ -0,0 +1,94 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.querydsl.core.annotations.QueryProjection;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class DtoProjectionTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void constructorArgumentsFollowParameterNames() {
+        Team team = new Team("projectionTeam");
+        em.persist(team);
+        Member saved = new Member("projection", 10, team);
+        em.persist(saved);
+        em.flush();
+        em.clear();
+
+        List<ReorderedDto> result = DtoProjection.of(em, ReorderedDto.class, member)
+                .select(new JPAQueryFactory(em))
+                .where(member.username.eq("projection"))
+                .fetch();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getMemberId()).isEqualTo(saved.getId());
+        assertThat(result.get(0).getTeamId()).isEqualTo(team.getId());
+        assertThat(result.get(0).getUsername()).isEqualTo("projection");
+        assertThat(result.get(0).getTeamName()).isEqualTo("projectionTeam");
+    }
+
+    @Test
+    public void teamIdIsReadFromForeignKey() {
+        DtoProjection<TeamIdDto> projection = DtoProjection.of(em, TeamIdDto.class, member);
+
+        assertThat(projection.select(new JPAQueryFactory(em)).getMetadata().getJoins()).hasSize(1);
+    }
+
+    @Test
+    public void mismatchedParameterNamesFail() {
+        assertThatThrownBy(() -> DtoProjection.of(em, MismatchedDto.class, member))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    //필드 선언 순서가 생성자 파라미터 순서와 다르다.
+    @Getter
+    public static class ReorderedDto {
+        private Long teamId;
+        private Long memberId;
+        private String teamName;
+        private String username;
+
+        @QueryProjection
+        public ReorderedDto(Long memberId, String username, Long teamId, String teamName) {
+            this.memberId = memberId;
+            this.username = username;
+            this.teamId = teamId;
+            this.teamName = teamName;
+        }
+    }
+
+    @Getter
+    public static class TeamIdDto {
+        private Long memberId;
+        private Long teamId;
+    }
+
+    public static class MismatchedDto {
+        private Long memberId;
+        private String username;
+
+        @QueryProjection
+        public MismatchedDto(Long memberId, String name) {
+            this.memberId = memberId;
+            this.username = name;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchCacheTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    MemberSearchCache cache = new MemberSearchCache(registry, true, 1024 * 1024);
+    AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    public void sameNormalizedConditionHitsCache() {
+        MemberSearchCondition first = condition("member1", "", 10, null);
+        MemberSearchCondition second = condition("member1", null, 10, null);
+
+        search(first, Pageable.unpaged());
+        search(second, Pageable.unpaged());
+        search(second, PageRequest.of(0, 3));
+
+        assertThat(queries.get()).as("페이지가 다르면 다른 키").isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.hitRatio()).isEqualTo(1.0 / 3);
+        assertThat(registry.get(MemberSearchCache.BYTES).gauge().value()).isPositive();
+    }
+
+    @Test
+    public void memberWriteInvalidatesOnlyMatchingEntries() {
+        MemberSearchCondition young = condition(null, null, null, 20);
+        MemberSearchCondition old = condition(null, null, 30, null);
+        search(young, Pageable.unpaged());
+        search(old, Pageable.unpaged());
+
+        cache.onEntityWrite(new EntityWriteEvent(Member.class, 1L, EntityWriteEvent.Type.INSERT,
+                memberState("member5", 40, null), null));
+        search(young, Pageable.unpaged());
+        search(old, Pageable.unpaged());
+
+        assertThat(queries.get()).as("나이 30 이상 조건만 다시 조회").isEqualTo(3);
+    }
+
+    @Test
+    public void teamRenameInvalidatesEntriesContainingTeam() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        search(all, Pageable.unpaged());
+
+        Map<String, Object> state = Collections.singletonMap("name", "teamC");
+        Map<String, Object> previous = Collections.singletonMap("name", "teamA");
+        cache.onEntityWrite(new EntityWriteEvent(Team.class, 1L, EntityWriteEvent.Type.UPDATE, state, previous));
+        search(all, Pageable.unpaged());
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void bulkWriteInvalidatesAll() {
+        search(condition("member1", null, null, null), Pageable.unpaged());
+
+        cache.onBulkWrite(new BulkWriteEvent(Member.class, 3));
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.bytes()).isZero();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverMaxBytes() {
+        cache = new MemberSearchCache(registry, true, 500);
+        search(condition("member1", null, null, null), Pageable.unpaged());
+        search(condition("member2", null, null, null), Pageable.unpaged());
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.bytes()).isLessThanOrEqualTo(500);
+    }
+
+    private List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        return cache.get(condition, pageable, () -> {
+            queries.incrementAndGet();
+            return Collections.singletonList(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+        });
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
+    private static Map<String, Object> memberState(String username, int age, Team team) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("username", username);
+        state.put("age", age);
+        state.put("team", team);
+        return state;
+    }
+}
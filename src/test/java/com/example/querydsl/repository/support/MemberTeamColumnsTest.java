@@ -0,0 +1,44 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberTeamDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberTeamColumnsTest {
+
+    List<MemberTeamDto> rows = Arrays.asList(
+            new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+            new MemberTeamDto(2L, "member2", 20, 2L, "teamB"),
+            new MemberTeamDto(3L, "member3", 30, 1L, "teamA"),
+            new MemberTeamDto(4L, "member4", 40, null, null));
+
+    @Test
+    public void rowViewsMatchInput() {
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder(1);
+        rows.forEach(builder::add);
+        MemberTeamColumns columns = builder.build();
+
+        assertThat(columns).containsExactlyElementsOf(rows);
+        assertThat(columns.teamName(2)).isSameAs(columns.teamName(0));
+        assertThat(columns.teamId(3)).isNull();
+        assertThat(columns.age(1)).isEqualTo(20);
+    }
+
+    @Test
+    public void serializesLikeDtoList() throws Exception {
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+        rows.forEach(builder::add);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        String json = objectMapper.writeValueAsString(builder.build());
+
+        assertThat(objectMapper.readTree(json)).isEqualTo(objectMapper.readTree(
+                objectMapper.writeValueAsString(new ArrayList<>(rows))));
+    }
+}
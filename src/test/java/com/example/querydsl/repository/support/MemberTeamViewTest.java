@@ -0,0 +1,168 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.dto.MemberSearchCondition;
+import com.example.querydsl.dto.MemberTeamDto;
+import com.example.querydsl.entity.Member;
+import com.example.querydsl.entity.Team;
+import com.example.querydsl.repository.MemberJpaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋된 변경이 구독 스레드에서 반영되므로 테스트 트랜잭션을 쓰지 않는다.
+ */
+@SpringBootTest
+public class MemberTeamViewTest {
+
+    static final String PREFIX = "view";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    ChangeStream changeStream;
+    @Autowired
+    ChunkedBulkExecutor executor;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    MemberTeamView view;
+    ChangeStream.Subscription subscription;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.execute(status -> {
+            Team teamA = new Team(PREFIX + "A");
+            Team teamB = new Team(PREFIX + "B");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 6; i++) {
+                em.persist(new Member(PREFIX + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+            em.persist(new Member(PREFIX + "NoTeam", 70));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            return null;
+        });
+
+        view = new MemberTeamView(em, transactionManager, true);
+        subscription = changeStream.subscribe(view);
+        view.rebuild();
+    }
+
+    @AfterEach
+    public void after() {
+        subscription.close();
+        executor.delete(member, member.id, member.username.startsWith(PREFIX), progress -> { });
+        tx.execute(status -> em.createQuery("delete from Team t where t.name like :prefix")
+                .setParameter("prefix", PREFIX + "%")
+                .executeUpdate());
+    }
+
+    @Test
+    public void searchMatchesJoin() {
+        assertThat(view.check().isConsistent()).isTrue();
+
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{
+                condition(null, PREFIX + "A", null, null),
+                condition(PREFIX + "3", null, null, null),
+                condition(null, null, 20, 40),
+                condition(null, PREFIX + "B", 20, null)}) {
+            //조인 쿼리는 정렬이 없으므로 순서는 비교하지 않는다.
+            List<MemberTeamDto> joined = memberJpaRepository.searchDynamic(condition);
+            assertThat(view.search(condition)).containsExactlyInAnyOrderElementsOf(joined);
+            assertThat(view.count(condition)).isEqualTo(joined.size());
+        }
+
+        MemberSearchCondition byTeam = condition(null, PREFIX + "A", null, null);
+        List<MemberTeamDto> all = view.search(byTeam);
+        assertThat(view.search(byTeam, 1, 1)).containsExactly(all.get(1));
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        Long memberId = tx.execute(status -> {
+            Member added = new Member(PREFIX + "Added", 15, em.find(Team.class, teamAId));
+            em.persist(added);
+            return added.getId();
+        });
+        tx.execute(status -> {
+            Member changed = em.find(Member.class, memberId);
+            changed.setAge(16);
+            changed.changeTeam(em.find(Team.class, teamBId));
+            em.find(Team.class, teamAId).setName(PREFIX + "Renamed");
+            return null;
+        });
+        awaitConsistent();
+
+        assertThat(view.search(condition(PREFIX + "Added", null, null, null)))
+                .containsExactly(new MemberTeamDto(memberId, PREFIX + "Added", 16, teamBId, PREFIX + "B"));
+        assertThat(view.count(condition(null, PREFIX + "Renamed", null, null))).isEqualTo(3);
+
+        tx.execute(status -> {
+            em.remove(em.find(Member.class, memberId));
+            return null;
+        });
+        awaitConsistent();
+
+        assertThat(view.search(condition(PREFIX + "Added", null, null, null))).isEmpty();
+    }
+
+    @Test
+    public void rebuildsAfterBulkUpdate() {
+        tx.execute(status -> new ChangeCapturingQueryFactory(em, eventPublisher)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.username.startsWith(PREFIX))
+                .execute());
+        awaitConsistent();
+
+        assertThat(view.search(condition(PREFIX + "0", null, null, null)).get(0).getAge()).isEqualTo(1);
+    }
+
+    private void awaitConsistent() {
+        long deadline = System.currentTimeMillis() + 5000;
+        MemberTeamView.Consistency consistency = view.check();
+        while (!consistency.isConsistent() && System.currentTimeMillis() < deadline) {
+            sleep();
+            consistency = view.check();
+        }
+        assertThat(consistency.isConsistent()).as(consistency.toString()).isTrue();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
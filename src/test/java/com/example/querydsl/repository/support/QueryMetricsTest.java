@@ -0,0 +1,59 @@
+package com.example.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryMetricsTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    QueryMetrics queryMetrics = new QueryMetrics(registry, true);
+
+    @Test
+    public void recordsLatencyAndRowsPerShape() {
+        String shape = QueryMetrics.shape("member.search", "username", null, "ageGoe", null);
+        queryMetrics.fetch(shape, () -> Arrays.asList(1, 2, 3));
+        queryMetrics.fetch(shape, () -> Arrays.asList(4));
+        queryMetrics.count("member.search.count", () -> 42L);
+
+        assertThat(shape).isEqualTo("member.search[username,ageGoe]");
+        Timer timer = registry.get(QueryMetrics.QUERY_TIMER).tag("shape", shape)
+                .tag("outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(registry.get(QueryMetrics.QUERY_ROWS_READ).tag("shape", shape).counter().count()).isEqualTo(4);
+        assertThat(registry.get(QueryMetrics.QUERY_ROWS).tag("shape", shape).summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    public void recordsFailedQueryAsError() {
+        assertThatThrownBy(() -> queryMetrics.fetch("member.broken", () -> {
+            throw new IllegalStateException("broken");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get(QueryMetrics.QUERY_TIMER).tag("shape", "member.broken")
+                .tag("outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(registry.get(QueryMetrics.QUERY_TIMER).tag("shape", "member.broken")
+                .tag("outcome", "success").timer().count()).isEqualTo(0);
+        assertThat(registry.get(QueryMetrics.QUERY_ROWS_READ).tag("shape", "member.broken").counter().count())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void endpointSummarizesShapes() {
+        queryMetrics.fetch("member.findAll", () -> Arrays.asList(1, 2));
+
+        Map<String, Map<String, Object>> shapes = new QueryMetricsEndpoint(queryMetrics).shapes();
+
+        assertThat(shapes).containsOnlyKeys("member.findAll");
+        assertThat(shapes.get("member.findAll"))
+                .containsEntry("count", 1L)
+                .containsEntry("totalRows", 2L);
+    }
+}
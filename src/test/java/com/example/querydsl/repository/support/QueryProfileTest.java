@@ -0,0 +1,51 @@
+package com.example.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class QueryProfileTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void appliesHintsToQuery() {
+        QueryProfile profile = QueryProfile.builder("report")
+                .fetchSize(500)
+                .timeout(Duration.ofSeconds(30))
+                .readOnly(true)
+                .build();
+
+        Query<?> query = profile.apply(new JPAQueryFactory(em).selectFrom(member))
+                .createQuery()
+                .unwrap(Query.class);
+
+        assertThat(query.getFetchSize()).isEqualTo(500);
+        assertThat(query.getTimeout()).isEqualTo(30);
+        assertThat(query.isReadOnly()).isTrue();
+        assertThat(query.getComment()).isEqualTo("profile=report");
+    }
+
+    @Test
+    public void namedProfiles() {
+        assertThat(QueryProfile.named("export")).isSameAs(QueryProfile.EXPORT);
+        assertThat(QueryProfile.named("interactive")).isSameAs(QueryProfile.INTERACTIVE);
+        assertThat(QueryProfile.named("count")).isSameAs(QueryProfile.COUNT);
+        assertThatThrownBy(() -> QueryProfile.named("batch"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("batch");
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.querydsl.repository.support;
+
+import com.example.querydsl.entity.Member;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.example.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ReadOnlyQuerySupportTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("readOnly" + i, i));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void readOnlyEntitiesAreNotDirtyChecked() {
+        List<Member> members = ReadOnlyQuerySupport.readOnly(queryFactory.selectFrom(member))
+                .where(member.username.startsWith("readOnly"))
+                .fetch();
+
+        Session session = em.unwrap(Session.class);
+        assertThat(members).hasSize(5).allMatch(session::isReadOnly);
+
+        members.forEach(m -> m.setAge(100));
+        em.flush();
+        em.clear();
+
+        Long changed = queryFactory.select(member.count()).from(member)
+                .where(member.username.startsWith("readOnly"), member.age.eq(100))
+                .fetchOne();
+        assertThat(changed).as("읽기 전용 엔티티의 변경은 반영되지 않는다").isZero();
+    }
+
+    @Test
+    public void statelessFetchSkipsPersistenceContext() {
+        List<Member> members = ReadOnlyQuerySupport.fetchStateless(em, queryFactory.selectFrom(member)
+                .where(member.username.startsWith("readOnly")));
+
+        assertThat(members).hasSize(5);
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+}
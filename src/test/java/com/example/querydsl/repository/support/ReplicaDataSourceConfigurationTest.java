@@ -0,0 +1,36 @@
+package com.example.querydsl.repository.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaDataSourceConfigurationTest {
+
+    @Test
+    public void replicaPoolsFollowHikariSettings() throws Exception {
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl("jdbc:h2:mem:configPrimary");
+        dataSourceProperties.setUsername("sa");
+        ReplicaProperties replicaProperties = new ReplicaProperties();
+        ReplicaProperties.Replica replica = new ReplicaProperties.Replica();
+        replica.setUrl("jdbc:h2:mem:configReplica");
+        replicaProperties.getReplicas().add(replica);
+        replicaProperties.setLagQuery("select 0");
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "3")
+                .withProperty("spring.datasource.hikari.connection-timeout", "1500");
+
+        try (ReplicaRoutingDataSource routing = new ReplicaDataSourceConfiguration()
+                .replicaRoutingDataSource(dataSourceProperties, replicaProperties, environment)) {
+            HikariDataSource pool = (HikariDataSource) routing.getReplicas().get("replica-0").getDataSource();
+
+            assertThat(pool.getMaximumPoolSize()).isEqualTo(3);
+            assertThat(pool.getConnectionTimeout()).isEqualTo(1500);
+            assertThat(pool.getPoolName()).isEqualTo("replica-0");
+            assertThat(pool.getUsername()).isEqualTo("sa");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 H2 인메모리 DB 를 레플리카 대신 사용한다.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    ReplicaRoutingDataSource routing;
+    DataSource dataSource;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void before() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", h2("replica0"));
+        replicas.put("replica-1", h2("replica1"));
+        for (DataSource replica : replicas.values()) {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.execute("create table replica_lag (seconds int)");
+            jdbc.execute("insert into replica_lag values (0)");
+        }
+        routing = new ReplicaRoutingDataSource(h2("primary"), replicas,
+                ReplicaRoutingDataSource.Selection.ROUND_ROBIN, Duration.ofSeconds(5), "select seconds from replica_lag");
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        for (ReplicaRoutingDataSource.Replica replica : routing.getReplicas().values()) {
+            new JdbcTemplate(replica.getDataSource()).execute("drop table replica_lag");
+        }
+        routing.close();
+    }
+
+    @Test
+    public void readOnlyGoesToReplicas() {
+        assertThat(currentUrl(readWrite)).endsWith("primary");
+        assertThat(currentUrl(readOnly)).endsWith("replica0");
+        assertThat(currentUrl(readOnly)).endsWith("replica1");
+        assertThat(currentUrl(readOnly)).as("round robin").endsWith("replica0");
+    }
+
+    @Test
+    public void laggingReplicaIsSkipped() {
+        new JdbcTemplate(routing.getReplicas().get("replica-0").getDataSource())
+                .update("update replica_lag set seconds = 60");
+        routing.probe();
+
+        assertThat(routing.getReplicas().get("replica-0").isAvailable()).isFalse();
+        assertThat(currentUrl(readOnly)).endsWith("replica1");
+        assertThat(currentUrl(readOnly)).endsWith("replica1");
+
+        new JdbcTemplate(routing.getReplicas().get("replica-1").getDataSource())
+                .update("update replica_lag set seconds = 60");
+        routing.probe();
+
+        assertThat(currentUrl(readOnly)).as("쓸 수 있는 레플리카가 없으면 primary").endsWith("primary");
+    }
+
+    private String currentUrl(TransactionTemplate template) {
+        return template.execute(status -> new JdbcTemplate(dataSource).execute(
+                (ConnectionCallback<String>) con -> con.getMetaData().getURL()));
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}